@@ -0,0 +1,93 @@
+package rucafe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rucafe.Bread;
+import rucafe.Coffee;
+import rucafe.CoffeeAddIn;
+import rucafe.CupSize;
+import rucafe.Donut;
+import rucafe.DonutFlavor;
+import rucafe.DonutType;
+import rucafe.Protein;
+import rucafe.Sandwich;
+import rucafe.SandwichExtra;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Equality and hashing of menu items, for both matching and non-matching pairs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EqualityBenchmark {
+
+    private Coffee coffee;
+    private Coffee sameCoffee;
+    private Coffee otherCoffee;
+    private Sandwich sandwich;
+    private Sandwich sameSandwich;
+    private Donut donut;
+    private Donut sameDonut;
+
+    @Setup
+    public void setUp() {
+        coffee = coffee(CoffeeAddIn.VANILLA, CoffeeAddIn.CARAMEL, CoffeeAddIn.WHIPPED_CREAM);
+        // same add-ins added in a different order
+        sameCoffee = coffee(CoffeeAddIn.WHIPPED_CREAM, CoffeeAddIn.CARAMEL, CoffeeAddIn.VANILLA);
+        otherCoffee = coffee(CoffeeAddIn.VANILLA, CoffeeAddIn.CARAMEL);
+        sandwich = new Sandwich(Bread.BAGEL, Protein.BEEF);
+        sandwich.add(SandwichExtra.CHEESE);
+        sandwich.add(SandwichExtra.TOMATOES);
+        sameSandwich = new Sandwich(Bread.BAGEL, Protein.BEEF);
+        sameSandwich.add(SandwichExtra.TOMATOES);
+        sameSandwich.add(SandwichExtra.CHEESE);
+        donut = new Donut(DonutType.YEAST, DonutFlavor.GLAZED, 1);
+        sameDonut = new Donut(DonutType.YEAST, DonutFlavor.GLAZED, 2);
+    }
+
+    private static Coffee coffee(CoffeeAddIn... addIns) {
+        Coffee coffee = new Coffee(CupSize.GRANDE);
+        for (CoffeeAddIn addIn : addIns) {
+            coffee.add(addIn);
+        }
+        return coffee;
+    }
+
+    @Benchmark
+    public boolean coffeeEqual() {
+        return coffee.equals(sameCoffee);
+    }
+
+    @Benchmark
+    public boolean coffeeNotEqual() {
+        return coffee.equals(otherCoffee);
+    }
+
+    @Benchmark
+    public int coffeeHashCode() {
+        return coffee.hashCode();
+    }
+
+    @Benchmark
+    public boolean sandwichEqual() {
+        return sandwich.equals(sameSandwich);
+    }
+
+    @Benchmark
+    public boolean donutEqual() {
+        return donut.equals(sameDonut);
+    }
+}
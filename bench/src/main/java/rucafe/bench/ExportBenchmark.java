@@ -0,0 +1,65 @@
+package rucafe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rucafe.ExportFormat;
+import rucafe.StoreOrders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to export every store order to a file in each format. Exports of large stores
+ * take seconds, so each iteration measures a single export.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class ExportBenchmark {
+
+    @Param({"1", "1000", "1000000"})
+    public int orders;
+
+    @Param({"TEXT", "CSV", "JSON_LINES"})
+    public ExportFormat format;
+
+    private StoreOrders store;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        store = new StoreOrders();
+        for (int number = 1; number <= orders; number++) {
+            store.add(Menus.order(number, 3, random));
+        }
+        file = Files.createTempFile("rucafe-export", format.getExtension()).toFile();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public long exportToFile() throws IOException {
+        store.exportToFile(file, format);
+        return file.length();
+    }
+}
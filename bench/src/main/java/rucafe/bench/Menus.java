@@ -0,0 +1,86 @@
+package rucafe.bench;
+
+import rucafe.Bread;
+import rucafe.Coffee;
+import rucafe.CoffeeAddIn;
+import rucafe.CupSize;
+import rucafe.Donut;
+import rucafe.DonutFlavor;
+import rucafe.DonutType;
+import rucafe.MenuItem;
+import rucafe.Order;
+import rucafe.Protein;
+import rucafe.Sandwich;
+import rucafe.SandwichExtra;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds reproducible menu items and orders for the benchmarks. The same seed always
+ * yields the same mix of donuts, coffees, and sandwiches.
+ */
+final class Menus {
+
+    private static final DonutType[] DONUT_TYPES = DonutType.values();
+    private static final DonutFlavor[] DONUT_FLAVORS = DonutFlavor.values();
+    private static final CupSize[] CUP_SIZES = CupSize.values();
+    private static final CoffeeAddIn[] ADD_INS = CoffeeAddIn.values();
+    private static final Bread[] BREADS = Bread.values();
+    private static final Protein[] PROTEINS = Protein.values();
+    private static final SandwichExtra[] EXTRAS = SandwichExtra.values();
+
+    private Menus() {
+    }
+
+    /**
+     * Creates a random menu item with a random quantity from 1 to 4.
+     *
+     * @param random source of randomness
+     * @return a donut, coffee, or sandwich
+     */
+    static MenuItem item(SplittableRandom random) {
+        int quantity = 1 + random.nextInt(4);
+        switch (random.nextInt(3)) {
+            case 0:
+                return new Donut(pick(random, DONUT_TYPES), pick(random, DONUT_FLAVORS), quantity);
+            case 1: {
+                Coffee coffee = new Coffee(pick(random, CUP_SIZES), quantity);
+                for (CoffeeAddIn addIn : ADD_INS) {
+                    if (random.nextBoolean()) {
+                        coffee.add(addIn);
+                    }
+                }
+                return coffee;
+            }
+            default: {
+                Sandwich sandwich = new Sandwich(pick(random, BREADS), pick(random, PROTEINS), quantity);
+                for (SandwichExtra extra : EXTRAS) {
+                    if (random.nextBoolean()) {
+                        sandwich.add(extra);
+                    }
+                }
+                return sandwich;
+            }
+        }
+    }
+
+    /**
+     * Creates an order holding the given number of random items.
+     *
+     * @param orderNumber order number
+     * @param items       number of items
+     * @param random      source of randomness
+     * @return the order
+     */
+    static Order order(int orderNumber, int items, SplittableRandom random) {
+        Order order = new Order(orderNumber);
+        for (int i = 0; i < items; i++) {
+            order.add(item(random));
+        }
+        return order;
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,86 @@
+package rucafe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import rucafe.MenuItem;
+import rucafe.Order;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading totals from and mutating orders of various sizes. The mutating benchmarks
+ * restore the order before returning, so every invocation sees the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int items;
+
+    private Order order;
+    private MenuItem extra;
+    private MenuItem middle;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        order = Menus.order(1, items, random);
+        extra = Menus.item(random);
+        middle = order.getItems().get(items / 2);
+    }
+
+    @Benchmark
+    public double getTotal() {
+        return order.getTotal();
+    }
+
+    @Benchmark
+    public long getTotalCents() {
+        return order.getTotalCents();
+    }
+
+    @Benchmark
+    public List<MenuItem> getItems() {
+        return order.getItems();
+    }
+
+    /** Appends an item and removes it again; {@code remove} has to search past every other item. */
+    @Benchmark
+    public boolean addThenRemoveLast() {
+        order.add(extra);
+        return order.remove(extra);
+    }
+
+    /** Removes an item from the middle and appends it back. */
+    @Benchmark
+    public boolean removeMiddleThenAdd() {
+        order.remove(middle);
+        return order.add(middle);
+    }
+
+    /** Changes the quantity of an item already in the order, which reprices the order. */
+    @Benchmark
+    public void setQuantity(Blackhole blackhole) {
+        int quantity = middle.getQuantity();
+        middle.setQuantity(quantity + 1);
+        middle.setQuantity(quantity);
+        blackhole.consume(order.getSubtotalCents());
+    }
+}
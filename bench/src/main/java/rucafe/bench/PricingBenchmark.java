@@ -0,0 +1,63 @@
+package rucafe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rucafe.MenuItem;
+import rucafe.PriceTable;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of pricing a single menu item, averaged over a mixed set of donuts, coffees,
+ * and sandwiches so that no one item type dominates the branch profile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+
+    private static final int ITEMS = 1024;
+
+    private MenuItem[] items;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        items = new MenuItem[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i] = Menus.item(random);
+        }
+    }
+
+    private MenuItem nextItem() {
+        return items[next++ & ITEMS - 1];
+    }
+
+    @Benchmark
+    public double price() {
+        return nextItem().price();
+    }
+
+    @Benchmark
+    public long priceCents() {
+        return nextItem().priceCents();
+    }
+
+    @Benchmark
+    public long taxCents() {
+        return PriceTable.tax(nextItem().priceCents());
+    }
+}
@@ -0,0 +1,61 @@
+package rucafe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rucafe.StoreNetwork;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizing a regional network of stores with 10,000 orders of three items each,
+ * across all stores and per store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StoreNetworkBenchmark {
+
+    private static final int ORDERS_PER_STORE = 10_000;
+
+    @Param({"1", "10", "50"})
+    public int stores;
+
+    private StoreNetwork network;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        network = new StoreNetwork();
+        for (int store = 0; store < stores; store++) {
+            for (int number = 1; number <= ORDERS_PER_STORE; number++) {
+                network.add("store-" + store, Menus.order(number, 3, random));
+            }
+        }
+        // build every partition's order snapshot once, as a running store would have
+        network.summarize();
+    }
+
+    @Benchmark
+    public StoreNetwork.Summary summarize() {
+        return network.summarize();
+    }
+
+    @Benchmark
+    public Map<String, StoreNetwork.Summary> summarizeByStore() {
+        return network.summarizeByStore(key -> true);
+    }
+}
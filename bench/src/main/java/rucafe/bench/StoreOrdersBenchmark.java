@@ -0,0 +1,80 @@
+package rucafe.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rucafe.Order;
+import rucafe.StoreOrders;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up, adding, and cancelling store orders, and rebuilding the order snapshot,
+ * with stores holding from one to a million orders of three items each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class StoreOrdersBenchmark {
+
+    @Param({"1", "1000", "1000000"})
+    public int orders;
+
+    private StoreOrders store;
+    private Order extra;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        store = new StoreOrders();
+        for (int number = 1; number <= orders; number++) {
+            store.add(Menus.order(number, 3, random));
+        }
+        extra = Menus.order(orders + 1, 3, random);
+    }
+
+    @Benchmark
+    public Order findByNumber() {
+        return store.findByNumber(1 + random.nextInt(orders));
+    }
+
+    @Benchmark
+    public Order findMissing() {
+        return store.findByNumber(-1 - random.nextInt(orders));
+    }
+
+    /** Places one more order and cancels it again. */
+    @Benchmark
+    public Order addThenRemoveByNumber() {
+        store.add(extra);
+        return store.removeByNumber(extra.getOrderNumber());
+    }
+
+    /** Reads the order list, which is cached until the store changes. */
+    @Benchmark
+    public List<Order> getOrders() {
+        return store.getOrders();
+    }
+
+    /** Changes the store and reads the order list, forcing the snapshot to be rebuilt. */
+    @Benchmark
+    public List<Order> getOrdersAfterChange() {
+        store.add(extra);
+        store.removeByNumber(extra.getOrderNumber());
+        return store.getOrders();
+    }
+}
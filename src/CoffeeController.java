@@ -6,23 +6,18 @@
  */
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.Parent;
 import rucafe.*;
 
-public class CoffeeController {
+public class CoffeeController implements SceneCache.Refreshable {
 
     @FXML private CheckBox cbSweetCream, cbMocha, cbFrenchVanilla, cbCaramel, cbIrishCream;
     @FXML private ComboBox<String> cupSizeCombo;
     @FXML private ComboBox<Integer> quantityCombo;
     @FXML private TextField priceField;
     @FXML private Button btnAddToOrder, btnMainMenu;
-
-    private static final double SHORT_PRICE = 2.39;
-    private static final double SIZE_INCREMENT = 0.60;
-    private static final double ADDIN_PRICE = 0.25;
+    @FXML private ImageView coffeeImage;
 
     /**
      * Initialize the controller after FXML is loaded.
@@ -30,6 +25,7 @@ public class CoffeeController {
      */
     @FXML
     public void initialize() {
+        ImageService.show(coffeeImage, "coffee.jpg");
         cupSizeCombo.getItems().addAll("Short", "Tall", "Grande", "Venti");
         cupSizeCombo.setValue("Short");
         for (int i = 1; i <= 10; i++) quantityCombo.getItems().add(i);
@@ -48,30 +44,30 @@ public class CoffeeController {
 
     /**
      * Calculate and update the price based on current selections.
-     * Price is calculated as (base price + add-ins) * quantity.
+     * Price is the catalog's unit price for the selected coffee times the quantity.
      */
     private void updatePrice() {
-        double basePrice = SHORT_PRICE;
-        String size = cupSizeCombo.getValue();
+        long total = selectedConfig().getUnitCents() * quantityCombo.getValue();
+        priceField.setText(PriceTable.format(total));
+    }
 
-        if (size.equals("Tall")) {
-            basePrice += SIZE_INCREMENT;
-        } else if (size.equals("Grande")) {
-            basePrice += SIZE_INCREMENT * 2;
-        } else if (size.equals("Venti")) {
-            basePrice += SIZE_INCREMENT * 3;
-        }
-        int addInCount = 0;
-        if (cbSweetCream.isSelected()) addInCount++;
-        if (cbMocha.isSelected()) addInCount++;
-        if (cbFrenchVanilla.isSelected()) addInCount++;
-        if (cbCaramel.isSelected()) addInCount++;
-        if (cbIrishCream.isSelected()) addInCount++;
+    /**
+     * Get the shared configuration matching the selected size and add-ins.
+     */
+    private CoffeeConfig selectedConfig() {
+        CupSize size = CupSize.SHORT;
+        String sizeStr = cupSizeCombo.getValue();
+        if (sizeStr.equals("Tall")) size = CupSize.TALL;
+        else if (sizeStr.equals("Grande")) size = CupSize.GRANDE;
+        else if (sizeStr.equals("Venti")) size = CupSize.VENTI;
 
-        double addInTotal = addInCount * ADDIN_PRICE;
-        int quantity = quantityCombo.getValue();
-        double total = (basePrice + addInTotal) * quantity;
-        priceField.setText(String.format("%.2f", total));
+        CoffeeConfig config = CoffeeConfig.of(size);
+        if (cbSweetCream.isSelected()) config = config.withAddIn(CoffeeAddIn.WHIPPED_CREAM);
+        if (cbMocha.isSelected()) config = config.withAddIn(CoffeeAddIn.MOCHA);
+        if (cbFrenchVanilla.isSelected()) config = config.withAddIn(CoffeeAddIn.VANILLA);
+        if (cbCaramel.isSelected()) config = config.withAddIn(CoffeeAddIn.CARAMEL);
+        if (cbIrishCream.isSelected()) config = config.withAddIn(CoffeeAddIn.TWO_PERCENT_MILK);
+        return config;
     }
 
     /**
@@ -80,26 +76,12 @@ public class CoffeeController {
      */
     @FXML
     private void handleAddToOrder() {
-        CupSize size = null;
-        String sizeStr = cupSizeCombo.getValue();
-        if (sizeStr.equals("Short")) size = CupSize.SHORT;
-        else if (sizeStr.equals("Tall")) size = CupSize.TALL;
-        else if (sizeStr.equals("Grande")) size = CupSize.GRANDE;
-        else if (sizeStr.equals("Venti")) size = CupSize.VENTI;
-
-        int quantity = quantityCombo.getValue();
-        Coffee coffee = new Coffee(size, quantity);
-
-        if (cbSweetCream.isSelected()) coffee.add(CoffeeAddIn.WHIPPED_CREAM);
-        if (cbMocha.isSelected()) coffee.add(CoffeeAddIn.MOCHA);
-        if (cbFrenchVanilla.isSelected()) coffee.add(CoffeeAddIn.VANILLA);
-        if (cbCaramel.isSelected()) coffee.add(CoffeeAddIn.CARAMEL);
-        if (cbIrishCream.isSelected()) coffee.add(CoffeeAddIn.TWO_PERCENT_MILK);
+        Coffee coffee = new Coffee(selectedConfig(), quantityCombo.getValue());
 
         DataManager.getInstance().getCurrentOrder().add(coffee);
 
         showAlert("Coffee added to order!\n" + coffee.toString() +
-                "\nPrice: $" + String.format("%.2f", coffee.price()));
+                "\nPrice: $" + PriceTable.format(coffee.priceCents()));
 
         resetForm();
     }
@@ -110,10 +92,8 @@ public class CoffeeController {
     @FXML
     private void handleMainMenu() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("MainView.fxml"));
-            Parent root = loader.load();
             Stage stage = (Stage) btnMainMenu.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            SceneCache.show(stage, "MainView.fxml");
             stage.setTitle("RU Cafe - Main Menu");
         } catch (Exception e) {
             e.printStackTrace();
@@ -121,6 +101,14 @@ public class CoffeeController {
         }
     }
 
+    /**
+     * Start from a fresh form each time the view is shown.
+     */
+    @Override
+    public void refresh() {
+        resetForm();
+    }
+
     /**
      * Reset form to default selections.
      */
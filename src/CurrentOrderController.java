@@ -1,9 +1,6 @@
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.Parent;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import rucafe.*;
@@ -12,15 +9,59 @@ import rucafe.Order;
 import rucafe.StoreOrders;
 import rucafe.DataManager;
 
-public class CurrentOrderController {
+import java.io.UncheckedIOException;
 
-    @FXML private ListView<String> orderItemsListView;
+public class CurrentOrderController implements SceneCache.Refreshable {
+
+    @FXML private ListView<Row> orderItemsListView;
     @FXML private TextField subtotalField;
     @FXML private TextField salesTaxField;
     @FXML private TextField totalField;
     @FXML private Button btnRemoveSelected, btnPlaceOrder, btnMainMenu;
 
-    private ObservableList<String> orderItemsDisplay = FXCollections.observableArrayList();
+    private ObservableList<Row> orderItemsDisplay = FXCollections.observableArrayList();
+    private Order boundOrder;
+
+    /**
+     * A shown line: its line id, for removing it, and its text
+     */
+    private static final class Row {
+        final int lineId;
+        final String text;
+
+        Row(MenuItem line) {
+            this.lineId = line.getLineId();
+            this.text = line.toString();
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /**
+     * Applies each line change to the matching row, formatting only that line.
+     */
+    private final Order.Listener orderListener = new Order.Listener() {
+        @Override
+        public void lineAdded(int index, MenuItem line) {
+            orderItemsDisplay.add(index, new Row(line));
+            updateTotals();
+        }
+
+        @Override
+        public void lineRemoved(int index, MenuItem line) {
+            orderItemsDisplay.remove(index);
+            updateTotals();
+        }
+
+        @Override
+        public void lineUpdated(int index, MenuItem line) {
+            orderItemsDisplay.set(index, new Row(line));
+            updateTotals();
+        }
+    };
 
     /**
      * Initialize the controller after FXML is loaded
@@ -34,22 +75,52 @@ public class CurrentOrderController {
         btnRemoveSelected.setOnAction(e -> handleRemoveSelected());
         btnPlaceOrder.setOnAction(e -> handlePlaceOrder());
         btnMainMenu.setOnAction(e -> handleMainMenu());
+    }
+
+    /**
+     * Show the current order. The controller is cached and stays bound while hidden,
+     * so this only rebuilds the display after the current order was replaced
+     */
+    @Override
+    public void refresh() {
+        bindCurrentOrder();
+    }
+
+    /**
+     * Listen to the current order, rebuilding the display only when it is a different order
+     */
+    private void bindCurrentOrder() {
+        Order currentOrder = DataManager.getInstance().getCurrentOrder();
+        if (currentOrder == boundOrder) return;
 
-        // Load current order
+        unbindOrder();
+        boundOrder = currentOrder;
+        currentOrder.addListener(orderListener);
         refreshOrder();
     }
 
+    /**
+     * Stop listening to the order shown
+     */
+    private void unbindOrder() {
+        if (boundOrder != null) {
+            boundOrder.removeListener(orderListener);
+            boundOrder = null;
+        }
+    }
+
     /**
      * Refresh the order display from DataManager
      */
     private void refreshOrder() {
-        orderItemsDisplay.clear();
-
         Order currentOrder = DataManager.getInstance().getCurrentOrder();
 
+        Row[] rows = new Row[currentOrder.size()];
+        int i = 0;
         for (MenuItem item : currentOrder.getItems()) {
-            orderItemsDisplay.add(item.toString());
+            rows[i++] = new Row(item);
         }
+        orderItemsDisplay.setAll(rows);
 
         updateTotals();
     }
@@ -60,13 +131,12 @@ public class CurrentOrderController {
     private void updateTotals() {
         Order currentOrder = DataManager.getInstance().getCurrentOrder();
 
-        double subtotal = currentOrder.getSubtotal();
-        double salesTax = currentOrder.getTax();
-        double total = currentOrder.getTotal();
+        long subtotal = currentOrder.getSubtotalCents();
+        long salesTax = PriceTable.tax(subtotal);
 
-        subtotalField.setText(String.format("%.2f", subtotal));
-        salesTaxField.setText(String.format("%.2f", salesTax));
-        totalField.setText(String.format("%.2f", total));
+        subtotalField.setText(PriceTable.format(subtotal));
+        salesTaxField.setText(PriceTable.format(salesTax));
+        totalField.setText(PriceTable.format(subtotal + salesTax));
     }
 
     /**
@@ -74,18 +144,17 @@ public class CurrentOrderController {
      */
     @FXML
     private void handleRemoveSelected() {
-        int selectedIndex = orderItemsListView.getSelectionModel().getSelectedIndex();
+        Row selected = orderItemsListView.getSelectionModel().getSelectedItem();
 
-        if (selectedIndex == -1) {
+        if (selected == null) {
             showAlert("Please select an item to remove!");
             return;
         }
 
-        Order currentOrder = DataManager.getInstance().getCurrentOrder();
-        MenuItem itemToRemove = currentOrder.getItems().get(selectedIndex);
-        currentOrder.remove(itemToRemove);
+        // each row keeps its line id, so no snapshot of the order is needed
+        DataManager.getInstance().getCurrentOrder().removeLine(selected.lineId);
 
-        refreshOrder();
+        // the order listener has already removed the row and updated the totals
         showAlert("Item removed from order.");
     }
 
@@ -96,7 +165,7 @@ public class CurrentOrderController {
     private void handlePlaceOrder() {
         Order currentOrder = DataManager.getInstance().getCurrentOrder();
 
-        if (currentOrder.getItems().isEmpty()) {
+        if (currentOrder.size() == 0) {
             showAlert("Your order is empty! Please add items before placing an order.");
             return;
         }
@@ -108,12 +177,18 @@ public class CurrentOrderController {
         confirmation.setContentText("Place order with total: $" + totalField.getText() + "?");
 
         if (confirmation.showAndWait().get() == ButtonType.OK) {
-            DataManager.getInstance().placeCurrentOrder();
+            try {
+                DataManager.getInstance().placeCurrentOrder();
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+                showAlert("Error placing order:\n" + e.getMessage());
+                return;
+            }
 
             showAlert("Order placed successfully!\nOrder #" + currentOrder.getOrderNumber() +
-                    "\nTotal: $" + String.format("%.2f", currentOrder.getTotal()));
+                    "\nTotal: $" + PriceTable.format(currentOrder.getTotalCents()));
 
-            refreshOrder();
+            bindCurrentOrder();
         }
     }
 
@@ -123,10 +198,8 @@ public class CurrentOrderController {
     @FXML
     private void handleMainMenu() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("MainView.fxml"));
-            Parent root = loader.load();
             Stage stage = (Stage) btnMainMenu.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            SceneCache.show(stage, "MainView.fxml");
             stage.setTitle("RU Cafe - Main Menu");
         } catch (Exception e) {
             e.printStackTrace();
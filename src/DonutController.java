@@ -3,39 +3,51 @@
  */
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.Parent;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import rucafe.*;
 import java.util.HashMap;
 import java.util.Map;
 
-public class DonutController {
+public class DonutController implements SceneCache.Refreshable {
 
     @FXML private ComboBox<String> typeBox;
     @FXML private ListView<String> flavorList;
-    @FXML private ListView<String> selectedList;
+    @FXML private ListView<Selection> selectedList;
     @FXML private Spinner<Integer> qtySpinner;
     @FXML private TextField subTotalField;
     @FXML private Button btnAddOne, btnAddAll, btnRemove, btnAddToOrder, btnMainMenu;
     @FXML private ImageView donutImage;  // Added for dynamic image
 
-    // Price constants
-    private static final double YEAST_PRICE = 1.99;
-    private static final double CAKE_PRICE = 2.19;
-    private static final double HOLE_PRICE = 0.39;
-    private static final double SEASONAL_PRICE = 2.49;
+    // Images shown for each donut type
+    private static final String[] DONUT_IMAGES = {"yeast.jpg", "cake.jpg", "holes.jpg", "seasonal.jpg"};
 
     // Flavor options for each donut type
     private final Map<String, String[]> flavorsByType = new HashMap<>();
 
-    // Selected donuts with quantities
-    private final ObservableList<String> selectedDonuts = FXCollections.observableArrayList();
+    // Donut type and flavor behind each name shown in the menu
+    private final Map<String, DonutType> typesByName = new HashMap<>();
+    private final Map<String, DonutFlavor> flavorsByName = new HashMap<>();
+
+    // Selected donuts with quantities, and their combined price
+    private final ObservableList<Selection> selectedDonuts = FXCollections.observableArrayList();
+    private long subtotalCents;
+
+    /**
+     * One selected line: the names the cashier picked and the donut it becomes.
+     */
+    private static final class Selection {
+        final String label;
+        final Donut donut;
+
+        Selection(String flavorName, String typeName, Donut donut) {
+            // Format: "flavor (type) x quantity"
+            this.label = flavorName + " (" + typeName + ") x" + donut.getQuantity();
+            this.donut = donut;
+        }
+    }
 
     /**
      * Initialize the controller after FXML is loaded
@@ -57,6 +69,16 @@ public class DonutController {
                 "Spooky Donuts", "Pumpkin Spice Donuts"
         });
 
+        typesByName.put("Yeast Donuts", DonutType.YEAST);
+        typesByName.put("Cake Donuts", DonutType.CAKE);
+        typesByName.put("Donut Holes", DonutType.HOLE);
+        typesByName.put("Seasonal", DonutType.SEASONAL);
+        for (String[] flavors : flavorsByType.values()) {
+            for (String flavor : flavors) {
+                flavorsByName.put(flavor, parseDonutFlavor(flavor));
+            }
+        }
+
         // Populate donut type combo box
         typeBox.getItems().addAll("Yeast Donuts", "Cake Donuts", "Donut Holes", "Seasonal");
         typeBox.setValue("Yeast Donuts");
@@ -66,8 +88,15 @@ public class DonutController {
                 new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 100, 1);
         qtySpinner.setValueFactory(valueFactory);
 
-        // Bind selected list to observable list
+        // Bind selected list to observable list, showing each selection's label
         selectedList.setItems(selectedDonuts);
+        selectedList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Selection item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item.label);
+            }
+        });
 
         // Add listeners
         typeBox.setOnAction(e -> updateFlavors());
@@ -77,9 +106,26 @@ public class DonutController {
         btnAddToOrder.setOnAction(e -> handleAddToOrder());
         btnMainMenu.setOnAction(e -> handleMainMenu());
 
+        // Decode every type's image up front so switching types never waits
+        for (String imageName : DONUT_IMAGES) {
+            ImageService.prefetch(imageName, donutImage.getFitWidth(), donutImage.getFitHeight());
+        }
+
         // Initialize with yeast donuts
         updateFlavors();
-        updateSubtotal();
+        clearSelection();
+    }
+
+    /**
+     * Start from an empty selection each time the view is shown
+     */
+    @Override
+    public void refresh() {
+        clearSelection();
+        if (!"Yeast Donuts".equals(typeBox.getValue())) {
+            typeBox.setValue("Yeast Donuts");
+        }
+        qtySpinner.getValueFactory().setValue(1);
     }
 
     /**
@@ -111,15 +157,11 @@ public class DonutController {
             imageName = "holes.jpg";
         } else if (type.contains("Seasonal")) {
             imageName = "seasonal.jpg";
+        } else {
+            return;
         }
 
-        try {
-            Image image = new Image(getClass().getResourceAsStream(imageName));
-            donutImage.setImage(image);
-        } catch (Exception e) {
-            System.err.println("Could not load image: " + imageName);
-            e.printStackTrace();
-        }
+        ImageService.show(donutImage, imageName);
     }
 
     /**
@@ -132,14 +174,10 @@ public class DonutController {
             return;
         }
 
-        int quantity = qtySpinner.getValue();
-        String donutType = typeBox.getValue();
-
-        // Format: "flavor (type) x quantity"
-        String item = selectedFlavor + " (" + donutType + ") x" + quantity;
-        selectedDonuts.add(item);
-
-        updateSubtotal();
+        Selection selection = newSelection(selectedFlavor, typeBox.getValue(), qtySpinner.getValue());
+        selectedDonuts.add(selection);
+        subtotalCents += selection.donut.priceCents();
+        showSubtotal();
     }
 
     /**
@@ -149,82 +187,55 @@ public class DonutController {
         int quantity = qtySpinner.getValue();
         String donutType = typeBox.getValue();
 
+        Selection[] added = new Selection[flavorList.getItems().size()];
+        int i = 0;
         for (String flavor : flavorList.getItems()) {
-            String item = flavor + " (" + donutType + ") x" + quantity;
-            selectedDonuts.add(item);
+            Selection selection = newSelection(flavor, donutType, quantity);
+            added[i++] = selection;
+            subtotalCents += selection.donut.priceCents();
         }
+        selectedDonuts.addAll(added);
 
-        updateSubtotal();
+        showSubtotal();
     }
 
     /**
-     * Remove selected item from the selected list
+     * Build a selection from the names shown in the menu
      */
-    private void removeSelected() {
-        String selected = selectedList.getSelectionModel().getSelectedItem();
-        if (selected == null) {
-            showAlert("Please select an item to remove!");
-            return;
-        }
-
-        selectedDonuts.remove(selected);
-        updateSubtotal();
+    private Selection newSelection(String flavorName, String typeName, int quantity) {
+        Donut donut = new Donut(typesByName.get(typeName), flavorsByName.get(flavorName), quantity);
+        return new Selection(flavorName, typeName, donut);
     }
 
     /**
-     * Calculate and update the subtotal
+     * Remove selected item from the selected list
      */
-    private void updateSubtotal() {
-        double subtotal = 0.0;
-
-        for (String item : selectedDonuts) {
-            String type = extractType(item);
-            int quantity = extractQuantity(item);
-
-            double pricePerDonut = getPriceForType(type);
-            subtotal += pricePerDonut * quantity;
+    private void removeSelected() {
+        int index = selectedList.getSelectionModel().getSelectedIndex();
+        if (index < 0) {
+            showAlert("Please select an item to remove!");
+            return;
         }
 
-        subTotalField.setText(String.format("%.2f", subtotal));
-    }
-
-    /**
-     * Extract donut type from item string
-     */
-    private String extractType(String item) {
-        int start = item.indexOf("(") + 1;
-        int end = item.indexOf(")");
-        if (start > 0 && end > start) {
-            return item.substring(start, end);
-        }
-        return "";
+        Selection removed = selectedDonuts.remove(index);
+        subtotalCents -= removed.donut.priceCents();
+        showSubtotal();
     }
 
     /**
-     * Extract quantity from item string
+     * Empty the selected list
      */
-    private int extractQuantity(String item) {
-        int xIndex = item.indexOf("x");
-        if (xIndex != -1) {
-            try {
-                String qtyStr = item.substring(xIndex + 1).trim();
-                return Integer.parseInt(qtyStr);
-            } catch (NumberFormatException e) {
-                return 1;
-            }
-        }
-        return 1;
+    private void clearSelection() {
+        selectedDonuts.clear();
+        subtotalCents = 0;
+        showSubtotal();
     }
 
     /**
-     * Get price based on donut type
+     * Show the running subtotal
      */
-    private double getPriceForType(String type) {
-        if (type.contains("Yeast")) return YEAST_PRICE;
-        if (type.contains("Cake")) return CAKE_PRICE;
-        if (type.contains("Hole")) return HOLE_PRICE;
-        if (type.contains("Seasonal")) return SEASONAL_PRICE;
-        return 0.0;
+    private void showSubtotal() {
+        subTotalField.setText(PriceTable.format(subtotalCents));
     }
 
     /**
@@ -239,48 +250,15 @@ public class DonutController {
         }
 
         // Add each selected donut to the order
-        for (String item : selectedDonuts) {
-            // Parse the item string
-            String typeStr = extractType(item);
-            String flavorStr = extractFlavor(item);
-            int quantity = extractQuantity(item);
-
-            // Convert to enums
-            DonutType type = parseDonutType(typeStr);
-            DonutFlavor flavor = parseDonutFlavor(flavorStr);
-
-            // Create donut and add to order
-            Donut donut = new Donut(type, flavor, quantity);
-            DataManager.getInstance().getCurrentOrder().add(donut);
+        Order currentOrder = DataManager.getInstance().getCurrentOrder();
+        for (Selection selection : selectedDonuts) {
+            currentOrder.add(selection.donut);
         }
 
         showAlert("Donuts added to order!\nSubtotal: $" + subTotalField.getText());
 
         // Clear the selection
-        selectedDonuts.clear();
-        updateSubtotal();
-    }
-
-    /**
-     * Extract flavor from item string (first part before parenthesis)
-     */
-    private String extractFlavor(String item) {
-        int parenIndex = item.indexOf("(");
-        if (parenIndex > 0) {
-            return item.substring(0, parenIndex).trim();
-        }
-        return "";
-    }
-
-    /**
-     * Parse DonutType from string
-     */
-    private DonutType parseDonutType(String typeStr) {
-        if (typeStr.contains("Yeast")) return DonutType.YEAST;
-        if (typeStr.contains("Cake")) return DonutType.CAKE;
-        if (typeStr.contains("Hole")) return DonutType.HOLE;
-        if (typeStr.contains("Seasonal")) return DonutType.SEASONAL;
-        return DonutType.YEAST;
+        clearSelection();
     }
 
     /**
@@ -302,10 +280,8 @@ public class DonutController {
     @FXML
     private void handleMainMenu() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("MainView.fxml"));
-            Parent root = loader.load();
             Stage stage = (Stage) btnMainMenu.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            SceneCache.show(stage, "MainView.fxml");
             stage.setTitle("RU Cafe - Main Menu");
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,85 @@
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared source of product images for all views.
+ *
+ * Images are decoded in the background at the size they are displayed at, so the
+ * FX thread never waits on a JPEG decode; an image view shows its image as soon as
+ * decoding finishes. Decoded images are kept in a bounded least-recently-used cache
+ * keyed by resource and size, so switching back to an image shows it at once.
+ *
+ * This class is thread-safe.
+ */
+public final class ImageService {
+
+    /** Most decoded images kept at once. */
+    private static final int CAPACITY = 32;
+
+    private static final Map<String, Image> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private ImageService() {
+    }
+
+    /**
+     * Gets an image scaled to fit the given size, keeping its aspect ratio. The image
+     * may still be loading when it is returned.
+     *
+     * @param resource image resource name, relative to this class
+     * @param width    width to fit, or 0 for the image's own width
+     * @param height   height to fit, or 0 for the image's own height
+     * @return the image, or null if there is no such resource
+     */
+    public static Image get(String resource, double width, double height) {
+        String key = resource + '@' + width + 'x' + height;
+        synchronized (cache) {
+            Image image = cache.get(key);
+            // a failed decode is not kept, so the next request tries again
+            if (image != null && !image.isError()) {
+                return image;
+            }
+            URL url = ImageService.class.getResource(resource);
+            if (url == null) {
+                cache.remove(key);
+                System.err.println("Could not load image: " + resource);
+                return null;
+            }
+            image = new Image(url.toExternalForm(), width, height, true, true, true);
+            cache.put(key, image);
+            return image;
+        }
+    }
+
+    /**
+     * Shows an image in an image view, decoded at the view's fit size.
+     *
+     * @param view     image view to show the image in
+     * @param resource image resource name, relative to this class
+     */
+    public static void show(ImageView view, String resource) {
+        Image image = get(resource, view.getFitWidth(), view.getFitHeight());
+        if (image != null) {
+            view.setImage(image);
+        }
+    }
+
+    /**
+     * Starts decoding an image so it is ready when first shown.
+     *
+     * @param resource image resource name, relative to this class
+     * @param width    width to fit, or 0 for the image's own width
+     * @param height   height to fit, or 0 for the image's own height
+     */
+    public static void prefetch(String resource, double width, double height) {
+        get(resource, width, height);
+    }
+}
@@ -2,20 +2,50 @@
 @author Yao Sheng Huang
  */
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
+import rucafe.DataManager;
+import rucafe.Order;
+import rucafe.StoreOrders;
 
 public class Main extends Application {
     @Override
     public void start(Stage stage) throws Exception {
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("MainView.fxml"));
-        Scene s = new Scene(fxmlLoader.load());
+        // tell the counter about orders the kitchen gave up on, whichever view is up
+        DataManager.getInstance().getStoreOrders().addListener(new StoreOrders.Listener() {
+            @Override
+            public void orderAdded(Order order) {
+            }
+
+            @Override
+            public void orderRemoved(Order order) {
+            }
+
+            @Override
+            public void orderNeedsAttention(Order order, String reason) {
+                Platform.runLater(() -> {
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Kitchen");
+                    alert.setHeaderText("Order #" + order.getOrderNumber() + " needs attention");
+                    alert.setContentText(reason);
+                    alert.show();
+                });
+            }
+        });
+        // parse the other views in the background while the main menu comes up
+        SceneCache.prewarm("DonutView.fxml", "CoffeeView.fxml", "SandwichView.fxml",
+                "CurrentOrderView.fxml", "StoreOrdersView.fxml");
+        SceneCache.show(stage, "MainView.fxml");
         stage.setTitle("Project 4");
-        stage.setScene(s);
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        DataManager.getInstance().shutdown();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -2,10 +2,9 @@
 @author Yao Sheng Huang
  */
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.stage.Stage;
 
@@ -13,12 +12,19 @@ import java.io.IOException;
 
 public class MainController {
 
+    @FXML private ImageView donutImage, sandwichImage, coffeeImage;
+
+    @FXML
+    public void initialize() {
+        ImageService.show(donutImage, "donut.jpg");
+        ImageService.show(sandwichImage, "sandwich.jpg");
+        ImageService.show(coffeeImage, "coffee.jpg");
+    }
+
     private void switchScene(MouseEvent e, String fxml) {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxml));
-            Scene scene = new Scene(loader.load());
             Stage stage = (Stage) ((Node) e.getSource()).getScene().getWindow();
-            stage.setScene(scene);
+            SceneCache.show(stage, fxml);
             stage.show();
         } catch (IOException ex) {
             ex.printStackTrace();
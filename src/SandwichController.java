@@ -6,13 +6,11 @@
  */
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.Parent;
 import rucafe.*;
 
-public class SandwichController {
+public class SandwichController implements SceneCache.Refreshable {
 
     @FXML private RadioButton rbBagel, rbWheatBread, rbSourdough;
     @FXML private RadioButton rbBeef, rbSalmon, rbChicken;
@@ -20,22 +18,19 @@ public class SandwichController {
     @FXML private TextField priceField;
     @FXML private ComboBox<Integer> quantityCombo;
     @FXML private Button btnAddToOrder, btnMainMenu;
+    @FXML private ImageView sandwichImage;
 
     private ToggleGroup breadGroup;
     private ToggleGroup proteinGroup;
 
-    private static final double BEEF_PRICE = 12.99;
-    private static final double CHICKEN_PRICE = 10.99;
-    private static final double SALMON_PRICE = 14.99;
-    private static final double CHEESE_PRICE = 1.00;
-    private static final double VEGGIE_PRICE = 0.30;
-
     /**
      * Initialize the controller after FXML is loaded.
      * Sets up toggle groups, combo boxes, listeners, and initial price display.
      */
     @FXML
     public void initialize() {
+        ImageService.show(sandwichImage, "sandwich.jpg");
+
         breadGroup = new ToggleGroup();
         rbBagel.setToggleGroup(breadGroup);
         rbWheatBread.setToggleGroup(breadGroup);
@@ -74,29 +69,66 @@ public class SandwichController {
 
     /**
      * Calculate and update the price based on current selections.
-     * Price is calculated as (base price + add-ons) * quantity.
+     * Price is the catalog's unit price for the selected protein and add-ons times the
+     * quantity. The bread does not change the price, so the price shows as soon as a
+     * protein is picked, and only the add-ons are counted until then.
      */
     private void updatePrice() {
-        double basePrice = 0.0;
-
-        if (rbBeef.isSelected()) {
-            basePrice = BEEF_PRICE;
-        } else if (rbChicken.isSelected()) {
-            basePrice = CHICKEN_PRICE;
-        } else if (rbSalmon.isSelected()) {
-            basePrice = SALMON_PRICE;
+        Bread bread = selectedBread();
+        Protein protein = selectedProtein();
+        SandwichConfig plain = SandwichConfig.of(bread != null ? bread : Bread.values()[0],
+                protein != null ? protein : Protein.values()[0]);
+        // one catalog for both prices, so a reload in between cannot mix two price lists
+        PriceCatalog prices = PriceCatalog.current();
+        long unit = prices.getUnitCents(withSelectedExtras(plain));
+        if (protein == null) unit -= prices.getUnitCents(plain);
+
+        priceField.setText("$" + PriceTable.format(unit * quantityCombo.getValue()));
+    }
+
+    /**
+     * Get the shared configuration matching the selected bread, protein, and add-ons.
+     *
+     * @return the configuration, or null if the bread or protein is not selected
+     */
+    private SandwichConfig selectedConfig() {
+        Bread bread = selectedBread();
+        Protein protein = selectedProtein();
+        if (bread == null || protein == null) {
+            return null;
         }
+        return withSelectedExtras(SandwichConfig.of(bread, protein));
+    }
 
-        double addOnPrice = 0.0;
-        if (cbLettuce.isSelected()) addOnPrice += VEGGIE_PRICE;
-        if (cbTomato.isSelected()) addOnPrice += VEGGIE_PRICE;
-        if (cbOnion.isSelected()) addOnPrice += VEGGIE_PRICE;
-        if (cbCheese.isSelected()) addOnPrice += CHEESE_PRICE;
+    /**
+     * Get the selected bread, or null if none is selected
+     */
+    private Bread selectedBread() {
+        if (rbBagel.isSelected()) return Bread.BAGEL;
+        if (rbWheatBread.isSelected()) return Bread.WHEAT;
+        if (rbSourdough.isSelected()) return Bread.SOURDOUGH;
+        return null;
+    }
 
-        int quantity = quantityCombo.getValue();
-        double total = (basePrice + addOnPrice) * quantity;
+    /**
+     * Get the selected protein, or null if none is selected
+     */
+    private Protein selectedProtein() {
+        if (rbBeef.isSelected()) return Protein.BEEF;
+        if (rbChicken.isSelected()) return Protein.CHICKEN;
+        if (rbSalmon.isSelected()) return Protein.SALMON;
+        return null;
+    }
 
-        priceField.setText(String.format("$%.2f", total));
+    /**
+     * Add the selected add-ons to a configuration
+     */
+    private SandwichConfig withSelectedExtras(SandwichConfig config) {
+        if (cbLettuce.isSelected()) config = config.withExtra(SandwichExtra.LETTUCE);
+        if (cbTomato.isSelected()) config = config.withExtra(SandwichExtra.TOMATOES);
+        if (cbOnion.isSelected()) config = config.withExtra(SandwichExtra.ONIONS);
+        if (cbCheese.isSelected()) config = config.withExtra(SandwichExtra.CHEESE);
+        return config;
     }
 
     /**
@@ -105,33 +137,18 @@ public class SandwichController {
      */
     @FXML
     private void handleAddToOrder() {
-        Bread bread = null;
-        if (rbBagel.isSelected()) bread = Bread.BAGEL;
-        else if (rbWheatBread.isSelected()) bread = Bread.WHEAT;
-        else if (rbSourdough.isSelected()) bread = Bread.SOURDOUGH;
-
-        Protein protein = null;
-        if (rbBeef.isSelected()) protein = Protein.BEEF;
-        else if (rbChicken.isSelected()) protein = Protein.CHICKEN;
-        else if (rbSalmon.isSelected()) protein = Protein.SALMON;
-
-        if (bread == null || protein == null) {
+        SandwichConfig config = selectedConfig();
+        if (config == null) {
             showAlert("Please select both bread and protein!");
             return;
         }
 
-        int quantity = quantityCombo.getValue();
-        Sandwich sandwich = new Sandwich(bread, protein, quantity);
-
-        if (cbLettuce.isSelected()) sandwich.add(SandwichExtra.LETTUCE);
-        if (cbTomato.isSelected()) sandwich.add(SandwichExtra.TOMATOES);
-        if (cbOnion.isSelected()) sandwich.add(SandwichExtra.ONIONS);
-        if (cbCheese.isSelected()) sandwich.add(SandwichExtra.CHEESE);
+        Sandwich sandwich = new Sandwich(config, quantityCombo.getValue());
 
         DataManager.getInstance().getCurrentOrder().add(sandwich);
 
         showAlert("Sandwich added to order!\n" + sandwich.toString() +
-                "\nPrice: $" + String.format("%.2f", sandwich.price()));
+                "\nPrice: $" + PriceTable.format(sandwich.priceCents()));
 
         resetForm();
     }
@@ -142,10 +159,8 @@ public class SandwichController {
     @FXML
     private void handleMainMenu() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("MainView.fxml"));
-            Parent root = loader.load();
             Stage stage = (Stage) btnMainMenu.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            SceneCache.show(stage, "MainView.fxml");
             stage.setTitle("RU Cafe - Main Menu");
         } catch (Exception e) {
             e.printStackTrace();
@@ -153,6 +168,14 @@ public class SandwichController {
         }
     }
 
+    /**
+     * Start from a fresh form each time the view is shown.
+     */
+    @Override
+    public void refresh() {
+        resetForm();
+    }
+
     /**
      * Reset form to default selections.
      */
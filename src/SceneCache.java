@@ -0,0 +1,132 @@
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads each view's FXML once and reuses its scene and controller for every later
+ * navigation, so switching screens does not reparse the FXML or reload its images.
+ *
+ * Views can be prewarmed on background threads at startup. A view that is still
+ * loading when it is first shown is waited for; one that was never prewarmed is
+ * loaded on the spot. Controllers that implement {@link Refreshable} are refreshed
+ * every time their view is shown.
+ *
+ * A prewarmed view's FXML is parsed, and its controller's {@code initialize()} runs, on
+ * a prewarm thread, so {@code initialize()} may only build the view's own nodes. Anything
+ * shared with the rest of the app, such as listening to the current order or the store
+ * orders, belongs in {@link Refreshable#refresh()}, which always runs on the FX thread.
+ */
+public final class SceneCache {
+
+    /**
+     * A controller whose view needs bringing up to date each time it is shown.
+     */
+    public interface Refreshable {
+
+        /**
+         * Called on the FX thread just before the view is shown. Listeners on orders and
+         * other shared state are registered here, never in {@code initialize()}.
+         */
+        void refresh();
+    }
+
+    /**
+     * A loaded view. The scene is created on the FX thread the first time it is shown.
+     */
+    private static final class View {
+        final Parent root;
+        final Object controller;
+        Scene scene;
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+
+    private static final Map<String, CompletableFuture<View>> views = new ConcurrentHashMap<>();
+
+    private SceneCache() {
+    }
+
+    /**
+     * Starts loading views on background threads. Views already loaded or loading
+     * are left alone.
+     *
+     * @param fxmls FXML resource names, relative to this class
+     */
+    public static void prewarm(String... fxmls) {
+        ExecutorService loaders = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(fxmls.length, Runtime.getRuntime().availableProcessors())),
+                r -> {
+                    Thread t = new Thread(r, "scene-prewarm");
+                    t.setDaemon(true);
+                    return t;
+                });
+        for (String fxml : fxmls) {
+            views.computeIfAbsent(fxml, f -> CompletableFuture.supplyAsync(() -> load(f), loaders));
+        }
+        loaders.shutdown();
+    }
+
+    /**
+     * Shows a view on a stage, loading it first if it is not cached. Must be called on
+     * the FX thread.
+     *
+     * @param stage stage to show the view on
+     * @param fxml  FXML resource name, relative to this class
+     * @throws IOException           if the view cannot be loaded
+     * @throws IllegalStateException if not called on the FX thread
+     */
+    public static void show(Stage stage, String fxml) throws IOException {
+        if (!Platform.isFxApplicationThread()) {
+            // refresh() binds views to shared state and must not race the FX thread
+            throw new IllegalStateException("Views must be shown on the FX thread");
+        }
+        View view = get(fxml);
+        if (view.controller instanceof Refreshable) {
+            ((Refreshable) view.controller).refresh();
+        }
+        if (view.scene == null) {
+            view.scene = new Scene(view.root);
+        }
+        stage.setScene(view.scene);
+    }
+
+    private static View get(String fxml) throws IOException {
+        CompletableFuture<View> future = views.computeIfAbsent(fxml,
+                f -> CompletableFuture.completedFuture(load(f)));
+        try {
+            return future.join();
+        } catch (CompletionException | UncheckedIOException e) {
+            // forget the failure so the next navigation tries again
+            views.remove(fxml, future);
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException("Cannot load " + fxml, cause);
+        }
+    }
+
+    private static View load(String fxml) {
+        FXMLLoader loader = new FXMLLoader(SceneCache.class.getResource(fxml));
+        try {
+            Parent root = loader.load();
+            return new View(root, loader.getController());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
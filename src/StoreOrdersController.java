@@ -1,56 +1,130 @@
 /*
 @author Yao Sheng Huang
  */
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.Parent;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import rucafe.ExportFormat;
 import rucafe.MenuItem;
+import rucafe.PriceTable;
 import rucafe.Order;
 import rucafe.StoreOrders;
 import rucafe.DataManager;
 
-public class StoreOrdersController {
+public class StoreOrdersController implements SceneCache.Refreshable {
 
     @FXML private ComboBox<String> comboBox;
     @FXML private TextField total;
     @FXML private ListView<String> listView;
     @FXML private Button cancel, export, back;
 
+    private final ObservableList<String> orderNumbers = FXCollections.observableArrayList();
+    private final Set<Integer> shownOrders = new HashSet<>();
+    private boolean listening;
+
+    /**
+     * Applies store changes to the order list as they happen, on the FX thread.
+     */
+    private final StoreOrders.Listener storeListener = new StoreOrders.Listener() {
+        @Override
+        public void orderAdded(Order order) {
+            onFxThread(() -> showOrder(order.getOrderNumber()));
+        }
+
+        @Override
+        public void orderRemoved(Order order) {
+            onFxThread(() -> hideOrder(order.getOrderNumber()));
+        }
+    };
+
     /**
      * Initialize the controller after FXML is loaded
      */
     @FXML
     public void initialize() {
-        loadOrders();
+        comboBox.setItems(orderNumbers);
         comboBox.setOnAction(e -> displaySelectedOrder());
         cancel.setOnAction(e -> handleCancelOrder());
         export.setOnAction(e -> handleExportOrders());
         back.setOnAction(e -> handleMainMenu());
+    }
 
-        if (!comboBox.getItems().isEmpty()) {
+    /**
+     * Load the orders the first time the view is shown and keep the list live from then
+     * on, since the controller is cached; later shows only refresh the selection
+     */
+    @Override
+    public void refresh() {
+        if (!listening) {
+            loadOrders();
+            listening = true;
+        }
+
+        if (comboBox.getValue() == null && !comboBox.getItems().isEmpty()) {
             comboBox.setValue(comboBox.getItems().get(0));
-            displaySelectedOrder();
         }
+        displaySelectedOrder();
     }
 
     /**
-     * Load all orders from StoreOrders
+     * Load all orders from StoreOrders once; later changes arrive through the listener
      */
     private void loadOrders() {
         StoreOrders storeOrders = DataManager.getInstance().getStoreOrders();
-        ObservableList<String> orderNumbers = FXCollections.observableArrayList();
+        // listen first so no change is missed; changes already in the snapshot are skipped
+        storeOrders.addListener(storeListener);
         for (Order order : storeOrders.getOrders()) {
-            orderNumbers.add(String.valueOf(order.getOrderNumber()));
+            showOrder(order.getOrderNumber());
+        }
+    }
+
+    /**
+     * Add an order number to the list unless it is already shown
+     */
+    private void showOrder(int orderNumber) {
+        if (shownOrders.add(orderNumber)) {
+            orderNumbers.add(String.valueOf(orderNumber));
+        }
+    }
+
+    /**
+     * Remove an order number from the list, moving the selection if it was selected
+     */
+    private void hideOrder(int orderNumber) {
+        if (!shownOrders.remove(orderNumber)) return;
+        String s = String.valueOf(orderNumber);
+        orderNumbers.remove(s);
+
+        if (s.equals(comboBox.getValue())) {
+            if (!orderNumbers.isEmpty()) {
+                comboBox.setValue(orderNumbers.get(0));
+                displaySelectedOrder();
+            } else {
+                comboBox.setValue(null);
+                total.setText("0.00");
+                listView.getItems().clear();
+            }
+        }
+    }
+
+    /**
+     * Run an update on the FX thread, right away if already on it
+     */
+    private static void onFxThread(Runnable update) {
+        if (Platform.isFxApplicationThread()) {
+            update.run();
+        } else {
+            Platform.runLater(update);
         }
-        comboBox.setItems(orderNumbers);
     }
 
     /**
@@ -63,16 +137,9 @@ public class StoreOrdersController {
         int orderNum = Integer.parseInt(s);
         StoreOrders storeOrders = DataManager.getInstance().getStoreOrders();
 
-        Order selectedOrder = null;
-        for (Order order : storeOrders.getOrders()) {
-            if (order.getOrderNumber() == orderNum) {
-                selectedOrder = order;
-                break;
-            }
-        }
-
+        Order selectedOrder = storeOrders.findByNumber(orderNum);
         if (selectedOrder != null) {
-            total.setText(String.format("%.2f", selectedOrder.getTotal()));
+            total.setText(PriceTable.format(selectedOrder.getTotalCents()));
 
             ObservableList<String> items = FXCollections.observableArrayList();
             for (MenuItem item : selectedOrder.getItems()) {
@@ -100,42 +167,28 @@ public class StoreOrdersController {
 
         if (confirmation.showAndWait().get() == ButtonType.OK) {
             int orderNum = Integer.parseInt(s);
-            StoreOrders storeOrders = DataManager.getInstance().getStoreOrders();
-
-            Order toRemove = null;
-            for (Order order : storeOrders.getOrders()) {
-                if (order.getOrderNumber() == orderNum) {
-                    toRemove = order;
-                    break;
-                }
-            }
-
-            if (toRemove != null) {
-                storeOrders.remove(toRemove);
-            }
-
-            loadOrders();
-
-            if (!comboBox.getItems().isEmpty()) {
-                comboBox.setValue(comboBox.getItems().get(0));
-                displaySelectedOrder();
-            } else {
-                total.setText("0.00");
-                listView.getItems().clear();
+            try {
+                DataManager.getInstance().cancelOrder(orderNum);
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+                showAlert("Error cancelling order:\n" + e.getMessage());
+                return;
             }
 
+            // the store listener has already removed it from the list
             showAlert("Order #" + orderNum + " has been cancelled.");
         }
     }
 
     /**
-     * Handle Export Orders button - saves all orders to a text file
+     * Handle Export Orders button - saves all orders to a file; the format
+     * (text, CSV, or JSON lines) follows the chosen file extension
      */
     @FXML
     private void handleExportOrders() {
         StoreOrders storeOrders = DataManager.getInstance().getStoreOrders();
 
-        if (storeOrders.getOrders().isEmpty()) {
+        if (storeOrders.size() == 0) {
             showAlert("No orders to export!");
             return;
         }
@@ -143,15 +196,17 @@ public class StoreOrdersController {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Orders");
         fileChooser.setInitialFileName("orders.txt");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Text Files", "*.txt")
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Text Files", "*.txt"),
+                new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON Lines Files", "*.jsonl")
         );
 
         File file = fileChooser.showSaveDialog(export.getScene().getWindow());
 
         if (file != null) {
             try {
-                storeOrders.exportToFile(file);
+                storeOrders.exportToFile(file, ExportFormat.forFileName(file.getName()));
                 showAlert("Orders exported successfully to:\n" + file.getAbsolutePath());
             } catch (IOException e) {
                 showAlert("Error exporting orders:\n" + e.getMessage());
@@ -165,10 +220,8 @@ public class StoreOrdersController {
     @FXML
     private void handleMainMenu() {
         try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("MainView.fxml"));
-            Parent root = loader.load();
             Stage stage = (Stage) back.getScene().getWindow();
-            stage.setScene(new Scene(root));
+            SceneCache.show(stage, "MainView.fxml");
             stage.setTitle("RU Cafe - Main Menu");
         } catch (Exception e) {
             e.printStackTrace();
@@ -1,26 +1,16 @@
 package rucafe;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a coffee menu item with a specific size and optional add-ins.
  * Price is determined by cup size, number of add-ins, and quantity.
+ * Size and add-ins are held in a shared {@link CoffeeConfig}.
  *
  * @author Sunghyun Kim
  */
 public class Coffee extends MenuItem implements Customizable {
 
-    private CupSize size;
-    private final List<CoffeeAddIn> addIns;
-
-    private static final double SHORT_PRICE  = 2.39;
-    private static final double TALL_PRICE   = SHORT_PRICE + 0.60;
-    private static final double GRANDE_PRICE = TALL_PRICE + 0.60;
-    private static final double VENTI_PRICE  = GRANDE_PRICE + 0.60;
-
-    private static final double ADD_IN_PRICE = 0.25;
-
     /**
      * Constructs a Coffee with given size and quantity.
      *
@@ -28,9 +18,7 @@ public class Coffee extends MenuItem implements Customizable {
      * @param quantity quantity of this coffee
      */
     public Coffee(CupSize size, int quantity) {
-        super(quantity);
-        this.size = size;
-        this.addIns = new ArrayList<>();
+        this(CoffeeConfig.of(size), quantity);
     }
 
     /**
@@ -42,13 +30,33 @@ public class Coffee extends MenuItem implements Customizable {
         this(size, 1);
     }
 
+    /**
+     * Constructs a Coffee from a shared configuration.
+     *
+     * @param config   coffee configuration
+     * @param quantity quantity of this coffee
+     */
+    public Coffee(CoffeeConfig config, int quantity) {
+        super(config, quantity);
+    }
+
+    /**
+     * Gets the coffee configuration.
+     *
+     * @return the shared configuration
+     */
+    @Override
+    public CoffeeConfig getConfig() {
+        return (CoffeeConfig) super.getConfig();
+    }
+
     /**
      * Gets the cup size for this coffee.
      *
      * @return the cup size
      */
     public CupSize getSize() {
-        return size;
+        return getConfig().getSize();
     }
 
     /**
@@ -57,16 +65,36 @@ public class Coffee extends MenuItem implements Customizable {
      * @param size new cup size
      */
     public void setSize(CupSize size) {
-        this.size = size;
+        setConfig(getConfig().withSize(size));
     }
 
     /**
-     * Gets an unmodifiable view of current add-ins.
+     * Gets an unmodifiable view of current add-ins, in declaration order.
+     * The returned list is shared and never copied.
      *
      * @return list of add-ins
      */
     public List<CoffeeAddIn> getAddIns() {
-        return List.copyOf(addIns);
+        return getConfig().getAddIns();
+    }
+
+    /**
+     * Gets the current add-ins as a bitmask of {@code 1 << CoffeeAddIn.ordinal()}.
+     *
+     * @return add-in bitmask
+     */
+    public int getAddInMask() {
+        return getConfig().getAddInMask();
+    }
+
+    /**
+     * Checks whether this coffee has the given add-in.
+     *
+     * @param addIn add-in to check
+     * @return true if present, false otherwise
+     */
+    public boolean hasAddIn(CoffeeAddIn addIn) {
+        return getConfig().hasAddIn(addIn);
     }
 
     /**
@@ -77,14 +105,11 @@ public class Coffee extends MenuItem implements Customizable {
      */
     @Override
     public boolean add(Object obj) {
-        if (!(obj instanceof CoffeeAddIn)) {
-            return false;
-        }
-        CoffeeAddIn addIn = (CoffeeAddIn) obj;
-        if (addIns.contains(addIn)) {
+        if (!(obj instanceof CoffeeAddIn) || hasAddIn((CoffeeAddIn) obj)) {
             return false;
         }
-        return addIns.add(addIn);
+        setConfig(getConfig().withAddIn((CoffeeAddIn) obj));
+        return true;
     }
 
     /**
@@ -95,42 +120,11 @@ public class Coffee extends MenuItem implements Customizable {
      */
     @Override
     public boolean remove(Object obj) {
-        if (!(obj instanceof CoffeeAddIn)) {
+        if (!(obj instanceof CoffeeAddIn) || !hasAddIn((CoffeeAddIn) obj)) {
             return false;
         }
-        return addIns.remove((CoffeeAddIn) obj);
-    }
-
-    /**
-     * Computes the total price for this coffee based on size, add-ins, and quantity.
-     *
-     * @return total price for this coffee
-     */
-    @Override
-    public double price() {
-        double base;
-
-        switch (size) {
-            case SHORT:
-                base = SHORT_PRICE;
-                break;
-            case TALL:
-                base = TALL_PRICE;
-                break;
-            case GRANDE:
-                base = GRANDE_PRICE;
-                break;
-            case VENTI:
-                base = VENTI_PRICE;
-                break;
-            default:
-                base = SHORT_PRICE;
-        }
-
-        double addInCost = addIns.size() * ADD_IN_PRICE;
-        double singleCupPrice = base + addInCost;
-
-        return singleCupPrice * getQuantity();
+        setConfig(getConfig().withoutAddIn((CoffeeAddIn) obj));
+        return true;
     }
 
     /**
@@ -140,22 +134,6 @@ public class Coffee extends MenuItem implements Customizable {
      */
     @Override
     public String toString() {
-        return "Coffee (" + size + ", add-ins=" + addIns + ", qty=" + getQuantity() + ")";
-    }
-
-    /**
-     * Two coffees are equal if they have the same size and the same set of add-ins.
-     *
-     * @param obj object to compare
-     * @return true if logically equal, false otherwise
-     */
-    @Override
-    public boolean equals(Object obj) {
-        if (!(obj instanceof Coffee)) {
-            return false;
-        }
-        Coffee other = (Coffee) obj;
-        return this.size == other.size && this.addIns.containsAll(other.addIns)
-                && other.addIns.containsAll(this.addIns);
+        return "Coffee (" + getConfig() + ", qty=" + getQuantity() + ")";
     }
-}
\ No newline at end of file
+}
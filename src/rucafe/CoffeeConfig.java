@@ -0,0 +1,175 @@
+package rucafe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interned coffee configuration: a cup size and a set of add-ins. Add-ins are held as
+ * a bitmask of {@code 1 << CoffeeAddIn.ordinal()}.
+ * Obtain instances with {@link #of(CupSize)} or {@link #of(CupSize, int)}.
+ */
+public final class CoffeeConfig extends ItemConfig {
+
+    /** Number of bits used by an add-in mask. */
+    static final int ADD_IN_BITS = CoffeeAddIn.values().length;
+
+    /** Indexed by {@code size.ordinal() << ADD_IN_BITS | addInMask}. */
+    private static final CoffeeConfig[] CONFIGS = new CoffeeConfig[CupSize.values().length << ADD_IN_BITS];
+
+    static {
+        for (CupSize size : CupSize.values()) {
+            for (int mask = 0; mask < 1 << ADD_IN_BITS; mask++) {
+                int code = size.ordinal() << ADD_IN_BITS | mask;
+                CONFIGS[code] = new CoffeeConfig(size, mask, code);
+            }
+        }
+    }
+
+    private final CupSize size;
+    private final int addInMask;
+    private final List<CoffeeAddIn> addIns;
+
+    private CoffeeConfig(CupSize size, int addInMask, int code) {
+        super(COFFEE, code);
+        this.size = size;
+        this.addInMask = addInMask;
+        List<CoffeeAddIn> list = new ArrayList<>(Integer.bitCount(addInMask));
+        for (CoffeeAddIn addIn : CoffeeAddIn.values()) {
+            if ((addInMask & bit(addIn)) != 0) {
+                list.add(addIn);
+            }
+        }
+        this.addIns = List.copyOf(list);
+    }
+
+    /**
+     * Gets the shared configuration for a coffee with no add-ins.
+     *
+     * @param size cup size
+     * @return the interned configuration
+     */
+    public static CoffeeConfig of(CupSize size) {
+        return of(size, 0);
+    }
+
+    /**
+     * Gets the shared configuration for a coffee.
+     *
+     * @param size      cup size
+     * @param addInMask add-ins as a bitmask of {@code 1 << CoffeeAddIn.ordinal()}
+     * @return the interned configuration
+     * @throws IllegalArgumentException if the mask has bits for unknown add-ins
+     */
+    public static CoffeeConfig of(CupSize size, int addInMask) {
+        if (addInMask >>> ADD_IN_BITS != 0) {
+            throw new IllegalArgumentException("invalid add-in mask " + addInMask);
+        }
+        return CONFIGS[size.ordinal() << ADD_IN_BITS | addInMask];
+    }
+
+    /**
+     * Gets a configuration by code.
+     *
+     * @param code value of {@link #code()}
+     * @return the interned configuration
+     * @throws IndexOutOfBoundsException if there is no such configuration
+     */
+    static CoffeeConfig byCode(int code) {
+        return CONFIGS[code];
+    }
+
+    /**
+     * Gets the number of coffee configurations.
+     *
+     * @return configuration count
+     */
+    static int count() {
+        return CONFIGS.length;
+    }
+
+    @Override
+    Coffee newItem(int quantity) {
+        return new Coffee(this, quantity);
+    }
+
+    @Override
+    int kind() {
+        return COFFEE;
+    }
+
+    /**
+     * Gets the cup size.
+     *
+     * @return cup size
+     */
+    public CupSize getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the add-ins as a bitmask of {@code 1 << CoffeeAddIn.ordinal()}.
+     *
+     * @return add-in bitmask
+     */
+    public int getAddInMask() {
+        return addInMask;
+    }
+
+    /**
+     * Gets the add-ins in declaration order. The list is immutable and shared.
+     *
+     * @return list of add-ins
+     */
+    public List<CoffeeAddIn> getAddIns() {
+        return addIns;
+    }
+
+    /**
+     * Checks whether this configuration has the given add-in.
+     *
+     * @param addIn add-in to check
+     * @return true if present, false otherwise
+     */
+    public boolean hasAddIn(CoffeeAddIn addIn) {
+        return (addInMask & bit(addIn)) != 0;
+    }
+
+    /**
+     * Gets the configuration with a different size and the same add-ins.
+     *
+     * @param size new cup size
+     * @return the interned configuration
+     */
+    public CoffeeConfig withSize(CupSize size) {
+        return CONFIGS[size.ordinal() << ADD_IN_BITS | addInMask];
+    }
+
+    /**
+     * Gets the configuration with an add-in added.
+     *
+     * @param addIn add-in to add
+     * @return the interned configuration; this one if the add-in is already present
+     */
+    public CoffeeConfig withAddIn(CoffeeAddIn addIn) {
+        return CONFIGS[code() | bit(addIn)];
+    }
+
+    /**
+     * Gets the configuration with an add-in removed.
+     *
+     * @param addIn add-in to remove
+     * @return the interned configuration; this one if the add-in is not present
+     */
+    public CoffeeConfig withoutAddIn(CoffeeAddIn addIn) {
+        return CONFIGS[code() & ~bit(addIn)];
+    }
+
+    @Override
+    public String toString() {
+        return size + ", add-ins=" + addIns;
+    }
+
+    private static int bit(CoffeeAddIn addIn) {
+        return 1 << addIn.ordinal();
+    }
+}
@@ -1,25 +1,133 @@
 package rucafe;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Singleton class to manage shared data across all controllers.
  * Provides access to the current order being built and all store orders.
+ * The current order coalesces equal items into a single line.
+ * Placed and cancelled orders are written to an {@link OrderJournal} before they
+ * take effect, and the store orders are rebuilt from it at startup. Status changes
+ * are not journaled, so replayed orders come back as {@link OrderStatus#PICKED_UP}.
+ * A {@link SalesRollup} is kept up to date as orders are placed, cancelled, and replayed.
+ * A {@link Kitchen} is started with the store, unless {@link #KITCHEN_WORKERS_PROPERTY}
+ * is 0; newly placed orders are sent to it and cancelled orders are withdrawn from it.
+ * Orders move to {@link OrderStatus#IN_PROGRESS} and {@link OrderStatus#READY} as the
+ * kitchen starts and finishes them, and to {@link OrderStatus#PICKED_UP} through
+ * {@link #pickUpOrder(int)}. An order the kitchen gives up on stays open and is
+ * {@link StoreOrders#flag(int, String) flagged} for the counter.
+ * The store orders are registered in a {@link StoreNetwork} under this store's id, so
+ * orders consolidated from other locations can be queried alongside them.
+ * Orders from earlier days are moved into the store's {@link OrderArchive} after the
+ * journal is replayed and then every hour. Each pass that archives orders saves the
+ * archive in the journal directory, and the journal segments of days before yesterday
+ * are then deleted, since their orders are in the saved archive. On restart the
+ * saved archive is loaded before the journal is replayed, so only the most recent
+ * days are replayed. Yesterday's segments are kept one more day because an order
+ * placed just before midnight can reach the journal after a pass has run.
+ * Only one process can have the journal directory open, so a second register or API
+ * server started on the same directory fails instead of sharing its segments.
+ *
+ * This class is thread-safe. Order numbers are allocated atomically when an order is
+ * placed, so any number of threads can place and cancel orders at the same time; the
+ * journal group-commits their records and {@link StoreOrders} stripes its locks.
  *
  * @author Yao Sheng Huang
  */
 public class DataManager {
 
-    private static DataManager instance;
-    private Order order;
-    private StoreOrders storeOrders;
-    private int next;
+    /** System property naming the journal directory. */
+    public static final String JOURNAL_DIR_PROPERTY = "rucafe.journal.dir";
+
+    /** System property naming this store location. */
+    public static final String STORE_ID_PROPERTY = "rucafe.store.id";
+
+    /** System property giving the number of kitchen workers per station; 0 for no kitchen. */
+    public static final String KITCHEN_WORKERS_PROPERTY = "rucafe.kitchen.workers";
+
+    /** System property giving how long a kitchen worker takes per unit, in milliseconds. */
+    public static final String KITCHEN_PREP_MILLIS_PROPERTY = "rucafe.kitchen.prep.millis";
+
+    /** Minutes between passes that archive orders from earlier days. */
+    private static final long AGEING_INTERVAL_MINUTES = 60;
+
+    private final Object currentLock = new Object();
+    private volatile Order order;
+    private final StoreOrders storeOrders;
+    private final SalesRollup salesRollup;
+    private final AtomicInteger next;
+    private final OrderJournal journal;
+    /**
+     * Whether orders were archived since the archive was last saved; guarded by this.
+     * Starts out true so the first pass finishes deleting segments if the last run
+     * stopped between saving the archive and deleting them.
+     */
+    private boolean archiveUnsaved = true;
+    private volatile Kitchen kitchen;
+    private final String storeId;
+    private final StoreNetwork storeNetwork;
+    private final ScheduledExecutorService ageing;
+    private final Kitchen.Listener kitchenListener = new Kitchen.Listener() {
+        @Override
+        public void orderStarted(Order started) {
+            storeOrders.advance(started.getOrderNumber(), OrderStatus.IN_PROGRESS);
+        }
+
+        @Override
+        public void orderReady(Order ready) {
+            storeOrders.advance(ready.getOrderNumber(), OrderStatus.READY);
+        }
+
+        @Override
+        public void taskFailed(Kitchen.Task task, RuntimeException cause) {
+            // the order stays open so the counter can make it up and mark it ready
+            storeOrders.flag(task.getOrder().getOrderNumber(), "The " + task.getStation()
+                    + " could not prepare " + task.getItems() + ": " + cause.getMessage());
+        }
+    };
+
+    /**
+     * Lazily creates the singleton on first use; class initialization makes it thread-safe.
+     */
+    private static final class Holder {
+        static final DataManager INSTANCE = new DataManager();
+    }
 
     /**
      * Private constructor for singleton pattern.
      */
     private DataManager() {
         this.storeOrders = new StoreOrders();
-        this.next = 1;
-        this.order = new Order(next);
+        this.storeId = System.getProperty(STORE_ID_PROPERTY, "main");
+        this.storeNetwork = new StoreNetwork();
+        storeNetwork.register(storeId, storeOrders);
+        this.salesRollup = new SalesRollup();
+        this.next = new AtomicInteger(1);
+        this.journal = openJournal(Paths.get(System.getProperty(JOURNAL_DIR_PROPERTY, "journal")));
+        loadArchived();
+        this.order = new Order(next.get(), true);
+        archivePastOrders();
+        setKitchen(startKitchen());
+        this.ageing = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-ageing");
+            t.setDaemon(true);
+            return t;
+        });
+        ageing.scheduleWithFixedDelay(this::archivePastOrders,
+                AGEING_INTERVAL_MINUTES, AGEING_INTERVAL_MINUTES, TimeUnit.MINUTES);
     }
 
     /**
@@ -28,8 +136,7 @@ public class DataManager {
      * @return the DataManager instance
      */
     public static DataManager getInstance() {
-        if (instance == null) instance = new DataManager();
-        return instance;
+        return Holder.INSTANCE;
     }
 
     /**
@@ -48,20 +155,358 @@ public class DataManager {
         return storeOrders;
     }
 
+    /**
+     * Gets the id of this store location.
+     *
+     * @return store id
+     */
+    public String getStoreId() {
+        return storeId;
+    }
+
+    /**
+     * Gets the network of store locations, which holds this store's orders under
+     * {@link #getStoreId()}.
+     *
+     * @return store network
+     */
+    public StoreNetwork getStoreNetwork() {
+        return storeNetwork;
+    }
+
+    /**
+     * Gets the running sales figures.
+     *
+     * @return sales rollup
+     */
+    public SalesRollup getSalesRollup() {
+        return salesRollup;
+    }
+
+    /**
+     * Gets the kitchen that placed orders are sent to.
+     *
+     * @return the kitchen, or null if orders are not sent to a kitchen
+     */
+    public Kitchen getKitchen() {
+        return kitchen;
+    }
+
+    /**
+     * Sets the kitchen that orders placed from now on are sent to. Orders already
+     * placed are not sent.
+     *
+     * @param kitchen the kitchen, or null to stop sending orders
+     */
+    public synchronized void setKitchen(Kitchen kitchen) {
+        Kitchen previous = this.kitchen;
+        if (previous == kitchen) return;
+        if (previous != null) {
+            previous.removeListener(kitchenListener);
+        }
+        if (kitchen != null) {
+            kitchen.addListener(kitchenListener);
+        }
+        this.kitchen = kitchen;
+    }
+
     /**
      * Places the current order and creates a new empty order.
+     * The order is journaled before it is added to the store orders.
+     *
+     * @throws UncheckedIOException if the order cannot be journaled; it is not placed
      */
     public void placeCurrentOrder() {
-        if (order.getItems().isEmpty()) return;
-        storeOrders.add(order);
-        next++;
-        order = new Order(next);
+        synchronized (currentLock) {
+            if (order.size() == 0) return;
+            placeOrder(order);
+            order = new Order(next.get(), true);
+        }
+    }
+
+    /**
+     * Places an order built outside the current-order workflow, for example by another
+     * intake channel. The order is given the next order number, journaled, and then
+     * added to the store orders. Safe to call from any thread.
+     *
+     * @param placed order to place; must not be modified afterwards
+     * @return the order number assigned to the order
+     * @throws IllegalStateException if the order has already been placed or has no items
+     * @throws UncheckedIOException  if the order cannot be journaled; it is not placed
+     */
+    public int placeOrder(Order placed) {
+        checkPlaceable(placed);
+        int number = next.getAndIncrement();
+        placed.setOrderNumber(number);
+        placed.setPlacedAt(System.currentTimeMillis());
+        if (journal != null) {
+            try {
+                journal.appendPlaced(placed);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not record order #" + number, e);
+            }
+        }
+        storeOrders.add(placed);
+        salesRollup.record(placed);
+        Kitchen k = kitchen;
+        if (k != null) {
+            k.submit(placed);
+        }
+        return number;
+    }
+
+    /**
+     * Places a batch of orders built outside the current-order workflow, such as
+     * orders back-filled from an offline register. The orders are given contiguous
+     * order numbers in list order, journaled together with a single sync, and then
+     * added to the store orders in one step. Safe to call from any thread.
+     *
+     * @param batch orders to place; must not be modified afterwards
+     * @return the order number assigned to the first order, or 0 if the batch is empty
+     * @throws IllegalStateException if an order has already been placed, has no items,
+     *                               or is in the batch twice; none of it is placed
+     * @throws UncheckedIOException  if the batch cannot be journaled; none of it is placed
+     */
+    public int placeOrders(List<Order> batch) {
+        if (batch.isEmpty()) return 0;
+        Set<Order> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Order placed : batch) {
+            checkPlaceable(placed);
+            if (!seen.add(placed)) {
+                throw new IllegalStateException("Order is in the batch twice");
+            }
+        }
+        int first = next.getAndAdd(batch.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setOrderNumber(first + i);
+            batch.get(i).setPlacedAt(now);
+        }
+        if (journal != null) {
+            try {
+                journal.appendPlaced(batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not record orders #" + first
+                        + " to #" + (first + batch.size() - 1), e);
+            }
+        }
+        storeOrders.addAll(batch);
+        Kitchen k = kitchen;
+        for (Order placed : batch) {
+            salesRollup.record(placed);
+            if (k != null) {
+                k.submit(placed);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Checks that an order can be placed: it is still being built and has items.
+     * Placing an order twice would journal it twice and leave a stale number in the
+     * store orders.
+     */
+    private static void checkPlaceable(Order order) {
+        if (order.getStatus() != OrderStatus.NEW) {
+            throw new IllegalStateException("Order #" + order.getOrderNumber() + " has already been placed");
+        }
+        if (order.size() == 0) {
+            throw new IllegalStateException("Cannot place an order with no items");
+        }
+    }
+
+    /**
+     * Cancels a placed order. The cancellation is journaled before the order is removed.
+     *
+     * @param orderNumber number of the order to cancel
+     * @return the cancelled order, or null if there is no such order or it is archived
+     * @throws UncheckedIOException if the cancellation cannot be journaled; the order is kept
+     */
+    public Order cancelOrder(int orderNumber) {
+        // archived orders are closed and cannot be cancelled
+        if (storeOrders.findStored(orderNumber) == null) return null;
+        if (journal != null) {
+            try {
+                journal.appendCancelled(orderNumber);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not record cancellation of order #" + orderNumber, e);
+            }
+        }
+        // marked cancelled before the kitchen is told, so a racing submit sees it
+        Order cancelled = storeOrders.cancel(orderNumber);
+        if (cancelled != null) {
+            salesRollup.unrecord(cancelled);
+            Kitchen k = kitchen;
+            if (k != null) {
+                k.cancel(orderNumber);
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Marks a placed order ready without going through the kitchen, for orders made up
+     * at the counter.
+     *
+     * @param orderNumber number of the order
+     * @return true if marked ready, false if there is no such order or it is not open
+     */
+    public boolean markOrderReady(int orderNumber) {
+        return storeOrders.advance(orderNumber, OrderStatus.READY);
+    }
+
+    /**
+     * Records that a ready order was handed to the customer.
+     *
+     * @param orderNumber number of the order
+     * @return true if picked up, false if there is no such order or it is not ready
+     */
+    public boolean pickUpOrder(int orderNumber) {
+        return storeOrders.advance(orderNumber, OrderStatus.PICKED_UP);
     }
 
     /**
      * Clears the current order without placing it.
      */
     public void clearCurrentOrder() {
-        order = new Order(next);
+        synchronized (currentLock) {
+            order = new Order(next.get(), true);
+        }
+    }
+
+    /**
+     * Moves orders placed before today into the archive, so only the current day's
+     * orders stay on the heap. If any were moved, or an earlier save failed, the
+     * archive is saved and the journal segments of days before yesterday are deleted.
+     *
+     * @return number of orders archived
+     */
+    public synchronized int archivePastOrders() {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        long startOfDay = today.atStartOfDay(zone).toInstant().toEpochMilli();
+        int archived = storeOrders.archivePlacedBefore(startOfDay);
+        if (archived > 0) {
+            archiveUnsaved = true;
+        }
+        if (journal != null && archiveUnsaved) {
+            long startOfYesterday = today.minusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            try {
+                journal.checkpoint(storeOrders.getArchive(), startOfYesterday);
+                archiveUnsaved = false;
+            } catch (IOException e) {
+                // the segments are kept, so nothing is lost; the next pass tries again
+                e.printStackTrace();
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Stops the kitchen workers, then flushes and closes the order journal. Called when
+     * the application exits.
+     */
+    public void shutdown() {
+        ageing.shutdown();
+        Kitchen k = kitchen;
+        if (k != null) {
+            k.close();
+        }
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts the kitchen that placed orders are sent to. Until the stations have kitchen
+     * displays, worker threads stand in for the staff and take
+     * {@link #KITCHEN_PREP_MILLIS_PROPERTY} per unit.
+     *
+     * @return the kitchen, or null if {@link #KITCHEN_WORKERS_PROPERTY} is 0
+     */
+    private static Kitchen startKitchen() {
+        int workers = Integer.getInteger(KITCHEN_WORKERS_PROPERTY, 2);
+        if (workers <= 0) return null;
+        long prepMillis = Long.getLong(KITCHEN_PREP_MILLIS_PROPERTY, 0);
+        Kitchen kitchen = new Kitchen();
+        for (Kitchen.Station station : Kitchen.Station.values()) {
+            kitchen.startWorkers(station, workers, task -> {
+                long units = 0;
+                for (MenuItem item : task.getItems()) {
+                    units += item.getQuantity();
+                }
+                Thread.sleep(prepMillis * units);
+            });
+        }
+        return kitchen;
+    }
+
+    /**
+     * Records the orders of the archive loaded from the journal directory in the sales
+     * figures, and moves the order counter past them.
+     */
+    private void loadArchived() {
+        OrderArchive archive = storeOrders.getArchive();
+        salesRollup.record(archive);
+        archive.forEachOrder((number, placedAt, lineCount, subtotal) ->
+                next.accumulateAndGet(number + 1, Math::max));
+    }
+
+    /**
+     * Opens the journal, loading the saved archive into the store's archive, and
+     * replays it into the store orders and order counter.
+     *
+     * @param dir journal directory
+     * @return the open journal, or null if it could not be opened
+     * @throws UncheckedIOException if another process has the journal open
+     */
+    private OrderJournal openJournal(Path dir) {
+        try {
+            OrderArchive archive = storeOrders.getArchive();
+            return OrderJournal.open(dir, OrderJournal.DEFAULT_SEGMENT_SIZE, archive, new OrderJournal.Visitor() {
+                @Override
+                public void placed(Order placed, long timestamp) {
+                    next.accumulateAndGet(placed.getOrderNumber() + 1, Math::max);
+                    if (archive.contains(placed.getOrderNumber())) {
+                        // saved with the archive before its segment was deleted
+                        return;
+                    }
+                    // status changes are not journaled and replayed orders never reach
+                    // the kitchen, so they are taken to have been handed over
+                    long now = System.nanoTime();
+                    placed.advance(OrderStatus.PLACED, now);
+                    placed.advance(OrderStatus.READY, now);
+                    placed.advance(OrderStatus.PICKED_UP, now);
+                    if (storeOrders.add(placed)) {
+                        salesRollup.record(placed);
+                    }
+                }
+
+                @Override
+                public void cancelled(int orderNumber, long timestamp) {
+                    Order cancelled = storeOrders.cancel(orderNumber);
+                    if (cancelled != null) {
+                        salesRollup.unrecord(cancelled);
+                    }
+                }
+
+                @Override
+                public void skipped(int orderNumber, long timestamp, RuntimeException cause) {
+                    // keep the number taken; the record stays in the journal
+                    next.accumulateAndGet(orderNumber + 1, Math::max);
+                    cause.printStackTrace();
+                }
+            });
+        } catch (OrderJournal.LockedException e) {
+            // another register owns the journal; running in memory would lose orders
+            throw new UncheckedIOException(e);
+        } catch (IOException e) {
+            // keep running in memory so the register stays usable
+            e.printStackTrace();
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -8,14 +8,6 @@ package rucafe;
  */
 public class Donut extends MenuItem {
 
-    private DonutType type;
-    private DonutFlavor flavor;
-
-    private static final double YEAST_PRICE = 1.99;
-    private static final double CAKE_PRICE = 2.19;
-    private static final double HOLE_PRICE = 0.39;
-    private static final double SEASONAL_PRICE = 2.49;
-
     /**
      * Constructs a Donut with given type, flavor, and quantity.
      *
@@ -24,9 +16,27 @@ public class Donut extends MenuItem {
      * @param quantity quantity
      */
     public Donut(DonutType type, DonutFlavor flavor, int quantity) {
-        super(quantity);
-        this.type = type;
-        this.flavor = flavor;
+        this(DonutConfig.of(type, flavor), quantity);
+    }
+
+    /**
+     * Constructs a Donut from a shared configuration.
+     *
+     * @param config   donut configuration
+     * @param quantity quantity
+     */
+    public Donut(DonutConfig config, int quantity) {
+        super(config, quantity);
+    }
+
+    /**
+     * Gets the donut configuration.
+     *
+     * @return the shared configuration
+     */
+    @Override
+    public DonutConfig getConfig() {
+        return (DonutConfig) super.getConfig();
     }
 
     /**
@@ -35,7 +45,7 @@ public class Donut extends MenuItem {
      * @return donut type
      */
     public DonutType getType() {
-        return type;
+        return getConfig().getType();
     }
 
     /**
@@ -44,7 +54,7 @@ public class Donut extends MenuItem {
      * @param type new donut type
      */
     public void setType(DonutType type) {
-        this.type = type;
+        setConfig(getConfig().withType(type));
     }
 
     /**
@@ -53,7 +63,7 @@ public class Donut extends MenuItem {
      * @return donut flavor
      */
     public DonutFlavor getFlavor() {
-        return flavor;
+        return getConfig().getFlavor();
     }
 
     /**
@@ -62,47 +72,11 @@ public class Donut extends MenuItem {
      * @param flavor new flavor
      */
     public void setFlavor(DonutFlavor flavor) {
-        this.flavor = flavor;
-    }
-
-    /**
-     * Computes the total price for this donut item based on type and quantity.
-     *
-     * @return total price
-     */
-    @Override
-    public double price() {
-        double base;
-        switch (type) {
-            case YEAST:
-                base = YEAST_PRICE;
-                break;
-            case CAKE:
-                base = CAKE_PRICE;
-                break;
-            case HOLE:
-                base = HOLE_PRICE;
-                break;
-            case SEASONAL:
-                base = SEASONAL_PRICE;
-                break;
-            default:
-                base = YEAST_PRICE;
-        }
-        return base * getQuantity();
+        setConfig(getConfig().withFlavor(flavor));
     }
 
     @Override
     public String toString() {
-        return "Donut (" + type + ", " + flavor + ", qty=" + getQuantity() + ")";
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (!(obj instanceof Donut)) {
-            return false;
-        }
-        Donut other = (Donut) obj;
-        return this.type == other.type && this.flavor == other.flavor;
+        return "Donut (" + getConfig() + ", qty=" + getQuantity() + ")";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package rucafe;
+
+/**
+ * Interned donut configuration: a type and a flavor.
+ * Obtain instances with {@link #of(DonutType, DonutFlavor)}.
+ */
+public final class DonutConfig extends ItemConfig {
+
+    private static final int FLAVORS = DonutFlavor.values().length;
+
+    /** Indexed by {@code type.ordinal() * FLAVORS + flavor.ordinal()}. */
+    private static final DonutConfig[] CONFIGS = new DonutConfig[DonutType.values().length * FLAVORS];
+
+    static {
+        for (DonutType type : DonutType.values()) {
+            for (DonutFlavor flavor : DonutFlavor.values()) {
+                int code = type.ordinal() * FLAVORS + flavor.ordinal();
+                CONFIGS[code] = new DonutConfig(type, flavor, code);
+            }
+        }
+    }
+
+    private final DonutType type;
+    private final DonutFlavor flavor;
+
+    private DonutConfig(DonutType type, DonutFlavor flavor, int code) {
+        super(DONUT, code);
+        this.type = type;
+        this.flavor = flavor;
+    }
+
+    /**
+     * Gets the shared configuration for a donut.
+     *
+     * @param type   donut type
+     * @param flavor donut flavor
+     * @return the interned configuration
+     */
+    public static DonutConfig of(DonutType type, DonutFlavor flavor) {
+        return CONFIGS[type.ordinal() * FLAVORS + flavor.ordinal()];
+    }
+
+    /**
+     * Gets a configuration by code.
+     *
+     * @param code value of {@link #code()}
+     * @return the interned configuration
+     * @throws IndexOutOfBoundsException if there is no such configuration
+     */
+    static DonutConfig byCode(int code) {
+        return CONFIGS[code];
+    }
+
+    /**
+     * Gets the number of donut configurations.
+     *
+     * @return configuration count
+     */
+    static int count() {
+        return CONFIGS.length;
+    }
+
+    @Override
+    Donut newItem(int quantity) {
+        return new Donut(this, quantity);
+    }
+
+    @Override
+    int kind() {
+        return DONUT;
+    }
+
+    /**
+     * Gets the donut type.
+     *
+     * @return donut type
+     */
+    public DonutType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the donut flavor.
+     *
+     * @return donut flavor
+     */
+    public DonutFlavor getFlavor() {
+        return flavor;
+    }
+
+    /**
+     * Gets the configuration with a different type and the same flavor.
+     *
+     * @param type new type
+     * @return the interned configuration
+     */
+    public DonutConfig withType(DonutType type) {
+        return of(type, flavor);
+    }
+
+    /**
+     * Gets the configuration with a different flavor and the same type.
+     *
+     * @param flavor new flavor
+     * @return the interned configuration
+     */
+    public DonutConfig withFlavor(DonutFlavor flavor) {
+        return of(type, flavor);
+    }
+
+    @Override
+    public String toString() {
+        return type + ", " + flavor;
+    }
+}
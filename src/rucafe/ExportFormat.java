@@ -0,0 +1,186 @@
+package rucafe;
+
+/**
+ * Output formats supported by {@link StoreOrders#exportToFile(java.io.File, ExportFormat)}.
+ * Each format appends its records to a reusable {@link StringBuilder}.
+ */
+public enum ExportFormat {
+
+    /**
+     * Human-readable layout: one header line per order, one tab-indented line per
+     * item, then subtotal, tax, and total.
+     */
+    TEXT(".txt") {
+        @Override
+        void appendOrder(StringBuilder sb, Order order) {
+            long subtotal = order.getSubtotalCents();
+            long tax = PriceTable.tax(subtotal);
+            sb.append(order).append(NL);
+            for (MenuItem item : order.getItems()) {
+                sb.append('\t').append(item).append("  $");
+                PriceTable.appendCents(sb, item.priceCents()).append(NL);
+            }
+            PriceTable.appendCents(sb.append("\tSubtotal: $"), subtotal).append(NL);
+            PriceTable.appendCents(sb.append("\tTax:      $"), tax).append(NL);
+            PriceTable.appendCents(sb.append("\tTotal:    $"), subtotal + tax).append(NL).append(NL);
+        }
+    },
+
+    /**
+     * Comma-separated values with a header row and one row per item.
+     */
+    CSV(".csv") {
+        @Override
+        void appendHeader(StringBuilder sb) {
+            sb.append("order_number,item,quantity,price,order_total").append(NL);
+        }
+
+        @Override
+        void appendOrder(StringBuilder sb, Order order) {
+            long total = order.getTotalCents();
+            for (MenuItem item : order.getItems()) {
+                sb.append(order.getOrderNumber()).append(',');
+                appendCsvField(sb, item.toString()).append(',');
+                sb.append(item.getQuantity()).append(',');
+                PriceTable.appendCents(sb, item.priceCents()).append(',');
+                PriceTable.appendCents(sb, total).append(NL);
+            }
+        }
+    },
+
+    /**
+     * One JSON object per line, one line per order.
+     */
+    JSON_LINES(".jsonl") {
+        @Override
+        void appendOrder(StringBuilder sb, Order order) {
+            appendJson(sb, order).append(NL);
+        }
+    };
+
+    private static final String NL = System.lineSeparator();
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the conventional file extension for this format, including the dot.
+     *
+     * @return file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Picks a format from a file name's extension, defaulting to {@link #TEXT}.
+     *
+     * @param fileName file name
+     * @return matching format
+     */
+    public static ExportFormat forFileName(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(CSV.extension)) {
+            return CSV;
+        }
+        if (lower.endsWith(JSON_LINES.extension) || lower.endsWith(".json")) {
+            return JSON_LINES;
+        }
+        return TEXT;
+    }
+
+    /**
+     * Appends anything that must come before the first order.
+     *
+     * @param sb builder to append to
+     */
+    void appendHeader(StringBuilder sb) {
+    }
+
+    /**
+     * Appends one order.
+     *
+     * @param sb    builder to append to
+     * @param order order to format
+     */
+    abstract void appendOrder(StringBuilder sb, Order order);
+
+    /**
+     * Appends an order as a single JSON object, without a trailing newline.
+     *
+     * @param sb    builder to append to
+     * @param order order to format
+     * @return the same builder
+     */
+    static StringBuilder appendJson(StringBuilder sb, Order order) {
+        long subtotal = order.getSubtotalCents();
+        long tax = PriceTable.tax(subtotal);
+        sb.append("{\"orderNumber\":").append(order.getOrderNumber()).append(",\"items\":[");
+        boolean first = true;
+        for (MenuItem item : order.getItems()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            appendJsonString(sb.append("{\"item\":"), item.toString());
+            sb.append(",\"quantity\":").append(item.getQuantity()).append(",\"price\":");
+            PriceTable.appendCents(sb, item.priceCents()).append('}');
+        }
+        PriceTable.appendCents(sb.append("],\"subtotal\":"), subtotal);
+        PriceTable.appendCents(sb.append(",\"tax\":"), tax);
+        PriceTable.appendCents(sb.append(",\"total\":"), subtotal + tax);
+        return sb.append('}');
+    }
+
+    /**
+     * Appends a JSON string literal, escaping quotes, backslashes and control characters.
+     *
+     * @param sb    builder to append to
+     * @param value string to append
+     * @return the same builder
+     */
+    static StringBuilder appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * Appends a CSV field, quoting it if it contains a comma, quote, or line break.
+     *
+     * @param sb    builder to append to
+     * @param value field value
+     * @return the same builder
+     */
+    private static StringBuilder appendCsvField(StringBuilder sb, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return sb.append(value);
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+}
@@ -0,0 +1,142 @@
+package rucafe;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to non-negative int values, with no boxing.
+ * Uses linear probing and backward-shift deletion, so there are no tombstones.
+ */
+final class IntIntHashMap {
+
+    /** Returned by lookups for absent keys; also marks free table slots. */
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs a map sized for the given number of entries.
+     *
+     * @param expected expected number of entries
+     */
+    IntIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Gets the value for a key.
+     *
+     * @param key key to look up
+     * @return mapped value, or {@link #MISSING} if absent
+     */
+    int get(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING || keys[i] == key) {
+                return values[i];
+            }
+        }
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     *
+     * @param key   key
+     * @param value non-negative value
+     * @return previous value, or {@link #MISSING} if the key was absent
+     */
+    int put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be non-negative: " + value);
+        }
+        int i = slot(key);
+        while (values[i] != MISSING) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > (mask + 1) >> 1) {
+            grow();
+        }
+        return MISSING;
+    }
+
+    /**
+     * Removes the mapping for a key.
+     *
+     * @param key key to remove
+     * @return removed value, or {@link #MISSING} if the key was absent
+     */
+    int remove(int key) {
+        int i = slot(key);
+        while (values[i] != MISSING && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        if (removed == MISSING) {
+            return MISSING;
+        }
+        values[i] = MISSING;
+        size--;
+        // shift back any entries whose probe sequence passed through the freed slot
+        for (int j = (i + 1) & mask; values[j] != MISSING; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            boolean reachable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (reachable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = MISSING;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the number of mappings.
+     *
+     * @return number of keys in the map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package rucafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion-ordered list of elements keyed by a unique int, with O(1) lookup and
+ * removal by key. Removed slots are left empty and compacted away once they make up
+ * more than half of the backing array, so removal stays amortized O(1).
+ *
+ * @param <E> element type
+ */
+final class IntKeyedList<E> implements Iterable<E> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] elements;
+    private int[] keys;
+    private int end;
+    private int size;
+    private final IntIntHashMap index;
+
+    /**
+     * Constructs an empty list.
+     */
+    IntKeyedList() {
+        this.elements = new Object[MIN_CAPACITY];
+        this.keys = new int[MIN_CAPACITY];
+        this.index = new IntIntHashMap(MIN_CAPACITY);
+    }
+
+    /**
+     * Appends an element under the given key.
+     *
+     * @param key     unique key
+     * @param element element to append, not null
+     * @return true if added, false if the key is already present
+     */
+    boolean add(int key, E element) {
+        if (index.get(key) != IntIntHashMap.MISSING) {
+            return false;
+        }
+        if (end == elements.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                int capacity = elements.length << 1;
+                elements = Arrays.copyOf(elements, capacity);
+                keys = Arrays.copyOf(keys, capacity);
+            }
+        }
+        elements[end] = element;
+        keys[end] = key;
+        index.put(key, end);
+        end++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Gets the element stored under a key.
+     *
+     * @param key key to look up
+     * @return element, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    E get(int key) {
+        int slot = index.get(key);
+        return slot == IntIntHashMap.MISSING ? null : (E) elements[slot];
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key key to check
+     * @return true if present, false otherwise
+     */
+    boolean containsKey(int key) {
+        return index.get(key) != IntIntHashMap.MISSING;
+    }
+
+    /**
+     * Gets the position of a key's element in insertion order. O(1) while no element
+     * has been removed since the last compaction, otherwise linear in the position.
+     *
+     * @param key key to look up
+     * @return zero-based position, or -1 if absent
+     */
+    int indexOf(int key) {
+        int slot = index.get(key);
+        if (slot == IntIntHashMap.MISSING || end == size) {
+            return slot;
+        }
+        int position = 0;
+        for (int i = 0; i < slot; i++) {
+            if (elements[i] != null) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Removes the element stored under a key.
+     *
+     * @param key key to remove
+     * @return removed element, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    E remove(int key) {
+        int slot = index.remove(key);
+        if (slot == IntIntHashMap.MISSING) {
+            return null;
+        }
+        E removed = (E) elements[slot];
+        elements[slot] = null;
+        size--;
+        while (end > 0 && elements[end - 1] == null) {
+            end--;
+        }
+        if (end - size > size && end > MIN_CAPACITY) {
+            compact();
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the number of elements.
+     *
+     * @return number of elements
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all elements.
+     */
+    void clear() {
+        Arrays.fill(elements, 0, end, null);
+        index.clear();
+        end = 0;
+        size = 0;
+    }
+
+    /**
+     * Copies the elements, in insertion order, into an unmodifiable list.
+     *
+     * @return unmodifiable list of elements
+     */
+    @SuppressWarnings("unchecked")
+    List<E> toList() {
+        List<E> list = new ArrayList<>(size);
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != null) {
+                list.add((E) elements[i]);
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Iterates over the elements in insertion order. The list must not be
+     * modified during iteration.
+     *
+     * @return iterator over elements
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                E element = (E) elements[next];
+                next = advance(next + 1);
+                return element;
+            }
+        };
+    }
+
+    private int advance(int from) {
+        while (from < end && elements[from] == null) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Slides live elements down over empty slots and re-points the index.
+     */
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < end; from++) {
+            if (elements[from] != null) {
+                if (to != from) {
+                    elements[to] = elements[from];
+                    keys[to] = keys[from];
+                    index.put(keys[to], to);
+                }
+                to++;
+            }
+        }
+        Arrays.fill(elements, to, end, null);
+        end = to;
+    }
+}
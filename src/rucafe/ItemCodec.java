@@ -0,0 +1,187 @@
+package rucafe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of menu items and orders.
+ *
+ * An item is encoded as its kind tag ({@link ItemConfig#DONUT}, {@link ItemConfig#COFFEE},
+ * or {@link ItemConfig#SANDWICH}), one byte of configuration code, the quantity as an
+ * unsigned varint, and the unit price in cents it was sold at as an unsigned varint, so
+ * a decoded item keeps its price whatever the {@link PriceCatalog} says by then. The
+ * configuration code packs the item's enum ordinals and its add-in or extras bitmask,
+ * so a line usually takes five bytes. Codes are unsigned, so each
+ * kind can have at most {@value #MAX_CODE} + 1 configurations; writing a larger code
+ * fails instead of truncating it.
+ * An order is encoded as its order number (varint), placement time (8 bytes),
+ * line count (varint), and then its lines.
+ *
+ * Encoding and decoding read and write the buffer in place at its position and do not
+ * allocate, apart from the item or order being decoded. Decoding lines with
+ * {@link #readConfig(ByteBuffer)} and {@link #readVarint(ByteBuffer)} allocates nothing.
+ */
+public final class ItemCodec {
+
+    /** Largest encoding of one item: kind, code, and two five-byte varints. */
+    public static final int MAX_ITEM_BYTES = 1 + 1 + 5 + 5;
+
+    /** Largest configuration code that fits in the one code byte. */
+    public static final int MAX_CODE = 0xFF;
+
+    /** Largest encoding of an order header: number, placement time, and line count. */
+    public static final int MAX_ORDER_HEADER_BYTES = 5 + Long.BYTES + 5;
+
+    private ItemCodec() {
+    }
+
+    /**
+     * Writes one item at the buffer's position.
+     *
+     * @param out  target buffer with at least {@link #MAX_ITEM_BYTES} remaining
+     * @param item item to encode
+     * @throws IllegalArgumentException if the item's configuration code is above
+     *                                  {@link #MAX_CODE} or its unit price does not fit an int
+     */
+    public static void writeItem(ByteBuffer out, MenuItem item) {
+        writeLine(out, item.getConfig(), item.getQuantity(), item.getUnitCents());
+    }
+
+    /**
+     * Writes one line given as a configuration, quantity, and unit price.
+     *
+     * @param out       target buffer with at least {@link #MAX_ITEM_BYTES} remaining
+     * @param config    item configuration
+     * @param quantity  non-negative quantity
+     * @param unitCents unit price in cents, from 0 to {@link Integer#MAX_VALUE}
+     * @throws IllegalArgumentException if the configuration code is above {@link #MAX_CODE}
+     *                                  or the price is out of range; nothing is written
+     */
+    public static void writeLine(ByteBuffer out, ItemConfig config, int quantity, long unitCents) {
+        if (config.code() > MAX_CODE) {
+            throw new IllegalArgumentException("configuration code " + config.code() + " of " + config
+                    + " does not fit in one byte");
+        }
+        if (unitCents < 0 || unitCents > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("unit price " + unitCents + " of " + config + " is out of range");
+        }
+        out.put((byte) config.kind()).put((byte) config.code());
+        writeVarint(out, quantity);
+        writeVarint(out, (int) unitCents);
+    }
+
+    /**
+     * Reads the kind and configuration code of one line. The quantity and the unit
+     * price follow and are each read with {@link #readVarint(ByteBuffer)}.
+     *
+     * @param in source buffer
+     * @return the shared configuration
+     * @throws IllegalArgumentException if the bytes do not name a configuration
+     */
+    public static ItemConfig readConfig(ByteBuffer in) {
+        int kind = in.get();
+        return ItemConfig.of(kind, in.get() & 0xFF);
+    }
+
+    /**
+     * Reads one item.
+     *
+     * @param in source buffer
+     * @return a new item not in any order, at the unit price it was written with
+     * @throws IllegalArgumentException if the bytes are not a valid item
+     */
+    public static MenuItem readItem(ByteBuffer in) {
+        ItemConfig config = readConfig(in);
+        MenuItem item = config.newItem(readVarint(in));
+        item.setUnitCents(readVarint(in));
+        return item;
+    }
+
+    /**
+     * Gets the exact number of bytes {@link #writeOrder(ByteBuffer, Order)} writes.
+     *
+     * @param order order to measure
+     * @return encoded size in bytes
+     */
+    public static int orderBytes(Order order) {
+        int bytes = varintSize(order.getOrderNumber()) + Long.BYTES + varintSize(order.size());
+        for (MenuItem item : order.getItems()) {
+            bytes += 2 + varintSize(item.getQuantity()) + varintSize((int) item.getUnitCents());
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes an order and all its lines at the buffer's position.
+     *
+     * @param out   target buffer with at least {@link #orderBytes(Order)} remaining
+     * @param order order to encode
+     */
+    public static void writeOrder(ByteBuffer out, Order order) {
+        writeVarint(out, order.getOrderNumber());
+        out.putLong(order.getPlacedAt());
+        writeVarint(out, order.size());
+        for (MenuItem item : order.getItems()) {
+            writeItem(out, item);
+        }
+    }
+
+    /**
+     * Reads an order written by {@link #writeOrder(ByteBuffer, Order)}.
+     *
+     * @param in source buffer
+     * @return a new order with the encoded number, placement time, and lines
+     * @throws IllegalArgumentException if the bytes are not a valid order
+     */
+    public static Order readOrder(ByteBuffer in) {
+        Order order = new Order(readVarint(in));
+        order.setPlacedAt(in.getLong());
+        int count = readVarint(in);
+        for (int i = 0; i < count; i++) {
+            order.add(readItem(in));
+        }
+        return order;
+    }
+
+    /**
+     * Writes an int as an unsigned LEB128 varint: seven bits per byte, low bits first.
+     *
+     * @param out   target buffer
+     * @param value value to write; negative values take five bytes
+     */
+    public static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     *
+     * @param in source buffer
+     * @return the value
+     * @throws IllegalArgumentException if the varint is longer than five bytes
+     */
+    public static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /**
+     * Gets the number of bytes {@link #writeVarint(ByteBuffer, int)} writes for a value.
+     *
+     * @param value value to measure
+     * @return size in bytes, 1 to 5
+     */
+    public static int varintSize(int value) {
+        return value == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+    }
+}
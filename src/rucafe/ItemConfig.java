@@ -0,0 +1,120 @@
+package rucafe;
+
+/**
+ * Immutable configuration of a menu item: everything about a line except its quantity.
+ * There is exactly one instance of each configuration, created up front and shared by
+ * every item that uses it, so configurations are compared by identity and are safe to
+ * share across threads. The hash code is computed once; the unit price is looked up in
+ * the current {@link PriceCatalog}.
+ *
+ * @see DonutConfig
+ * @see CoffeeConfig
+ * @see SandwichConfig
+ */
+public abstract class ItemConfig {
+
+    /** Kind tag of {@link DonutConfig}. */
+    static final int DONUT = 0;
+    /** Kind tag of {@link CoffeeConfig}. */
+    static final int COFFEE = 1;
+    /** Kind tag of {@link SandwichConfig}. */
+    static final int SANDWICH = 2;
+
+    private static final int KIND_BITS = 2;
+
+    private final int code;
+    private final int hash;
+
+    /**
+     * Creates a configuration. Only the configuration classes in this package create
+     * instances, once per configuration.
+     *
+     * @param kind kind tag
+     * @param code index of the configuration within its kind
+     */
+    ItemConfig(int kind, int code) {
+        this.code = code;
+        this.hash = code << KIND_BITS | kind;
+    }
+
+    /**
+     * Gets a configuration by kind tag and code.
+     *
+     * @param kind kind tag
+     * @param code value of {@link #code()}
+     * @return the interned configuration
+     * @throws IllegalArgumentException if there is no such configuration
+     */
+    static ItemConfig of(int kind, int code) {
+        try {
+            switch (kind) {
+                case DONUT:
+                    return DonutConfig.byCode(code);
+                case COFFEE:
+                    return CoffeeConfig.byCode(code);
+                case SANDWICH:
+                    return SandwichConfig.byCode(code);
+                default:
+                    break;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException("no configuration of kind " + kind + " with code " + code);
+    }
+
+    /**
+     * Creates a new menu item with this configuration.
+     *
+     * @param quantity quantity of the item
+     * @return a new item not in any order
+     */
+    abstract MenuItem newItem(int quantity);
+
+    /**
+     * Gets the kind tag: {@link #DONUT}, {@link #COFFEE}, or {@link #SANDWICH}.
+     *
+     * @return kind tag
+     */
+    abstract int kind();
+
+    /**
+     * Gets the index of this configuration within its kind. Together with
+     * {@link #kind()} it identifies the configuration.
+     *
+     * @return configuration code
+     */
+    final int code() {
+        return code;
+    }
+
+    /**
+     * Gets the current price of a single unit of this configuration.
+     *
+     * @return unit price in cents
+     */
+    public final long getUnitCents() {
+        return PriceCatalog.current().getUnitCents(this);
+    }
+
+    /**
+     * Configurations are interned, so equality is identity.
+     *
+     * @param obj object to compare
+     * @return true if obj is this configuration
+     */
+    @Override
+    public final boolean equals(Object obj) {
+        return this == obj;
+    }
+
+    /**
+     * Gets the cached hash, distinct for every configuration.
+     *
+     * @return hash code
+     */
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+}
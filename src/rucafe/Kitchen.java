@@ -0,0 +1,686 @@
+package rucafe;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fulfillment pipeline that routes placed orders to the kitchen stations.
+ *
+ * Each submitted order is split into one {@link Task} per {@link Station} it needs,
+ * holding that station's lines. Every station has a bounded queue of tasks, which
+ * worker threads ({@link #startWorkers(Station, int, Preparer)}) or kitchen displays
+ * ({@link #take(Station)}) take from and hand back with {@link #complete(Task)}.
+ * When the last task of an order is completed the order is ready. A worker retries a
+ * task that fails to prepare a few times, then withdraws its order and reports it
+ * through {@link Listener#taskFailed(Task, RuntimeException)}.
+ *
+ * A station holds at most its capacity of tasks, queued or in progress. An order is
+ * admitted only once every station it needs has room, so a saturated station holds
+ * back new orders instead of letting other stations run ahead of it. Orders that do
+ * not fit wait in a first-in, first-out backlog and are admitted as tasks complete;
+ * {@link #submit(Order)} never blocks and never drops an order.
+ * {@link #isSaturated()} tells intake channels to slow down while there is a backlog.
+ *
+ * The pipeline measures, per station, how long tasks wait in the queue and how long
+ * they take to prepare, and overall, how long orders take from submission to ready.
+ * All times are measured with {@link System#nanoTime()}.
+ *
+ * This class is thread-safe.
+ */
+public class Kitchen implements AutoCloseable {
+
+    /**
+     * The stations that prepare menu items.
+     */
+    public enum Station {
+        /** Prepares coffee. */
+        COFFEE_BAR,
+        /** Boxes donuts. */
+        DONUT_CASE,
+        /** Makes sandwiches. */
+        SANDWICH_LINE;
+
+        /**
+         * Gets the station that prepares an item configuration.
+         *
+         * @param config item configuration
+         * @return the station
+         */
+        static Station of(ItemConfig config) {
+            switch (config.kind()) {
+                case ItemConfig.COFFEE:
+                    return COFFEE_BAR;
+                case ItemConfig.SANDWICH:
+                    return SANDWICH_LINE;
+                default:
+                    return DONUT_CASE;
+            }
+        }
+    }
+
+    /**
+     * Receives order progress. Called on the thread that took or completed the task,
+     * outside any kitchen lock.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a station takes the first task of an order.
+         *
+         * @param order the order being prepared
+         */
+        void orderStarted(Order order);
+
+        /**
+         * Called when the last task of an order is completed.
+         *
+         * @param order the order that is ready
+         */
+        void orderReady(Order order);
+
+        /**
+         * Called when a worker gives up on a task after {@link #MAX_ATTEMPTS} failed
+         * attempts. The order is withdrawn from the kitchen.
+         *
+         * @param task  the task that could not be prepared
+         * @param cause what the last attempt threw
+         */
+        default void taskFailed(Task task, RuntimeException cause) {
+        }
+    }
+
+    /**
+     * Prepares one task on a worker thread.
+     */
+    public interface Preparer {
+
+        /**
+         * Prepares the task's lines. The task is completed when this returns; if it
+         * throws, the task is queued again after a pause, up to {@link #MAX_ATTEMPTS}
+         * attempts in all.
+         *
+         * @param task task to prepare
+         * @throws InterruptedException if the worker is stopped while preparing
+         */
+        void prepare(Task task) throws InterruptedException;
+    }
+
+    /**
+     * The part of an order one station prepares.
+     */
+    public static final class Task {
+        private final Ticket ticket;
+        private final Station station;
+        private final List<MenuItem> items;
+        private long queuedAt;
+        private long startedAt;
+        private int attempts;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Task(Ticket ticket, Station station, List<MenuItem> items) {
+            this.ticket = ticket;
+            this.station = station;
+            this.items = Collections.unmodifiableList(items);
+        }
+
+        /**
+         * Gets the order this task belongs to.
+         *
+         * @return the order
+         */
+        public Order getOrder() {
+            return ticket.order;
+        }
+
+        /**
+         * Gets the station that prepares this task.
+         *
+         * @return the station
+         */
+        public Station getStation() {
+            return station;
+        }
+
+        /**
+         * Gets the lines this station prepares.
+         *
+         * @return unmodifiable list of lines
+         */
+        public List<MenuItem> getItems() {
+            return items;
+        }
+
+        @Override
+        public String toString() {
+            return "Order #" + ticket.order.getOrderNumber() + " " + station + ": " + items;
+        }
+    }
+
+    /**
+     * An order's progress through the kitchen.
+     */
+    private static final class Ticket {
+        final Order order;
+        final long submittedAt;
+        final List<Task> tasks = new ArrayList<>(Station.values().length);
+        final AtomicInteger remaining = new AtomicInteger();
+        final AtomicBoolean started = new AtomicBoolean();
+        volatile boolean cancelled;
+
+        Ticket(Order order, long submittedAt) {
+            this.order = order;
+            this.submittedAt = submittedAt;
+        }
+    }
+
+    /**
+     * A station's queue, capacity, and measurements.
+     */
+    private static final class StationQueue {
+        final BlockingQueue<Task> queue;
+        final Semaphore slots;
+        final int capacity;
+        final LongAdder completed = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder prepNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        StationQueue(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.slots = new Semaphore(capacity);
+            this.capacity = capacity;
+        }
+    }
+
+    /** Default number of tasks a station holds. */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /** Most times a worker tries to prepare a task before giving up on its order. */
+    public static final int MAX_ATTEMPTS = 3;
+
+    /** Pause before a failed task is queued again; doubles with each attempt. */
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    private final StationQueue[] stations = new StationQueue[Station.values().length];
+    private final Map<Integer, Ticket> tickets = new ConcurrentHashMap<>();
+    private final ArrayDeque<Ticket> backlog = new ArrayDeque<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+
+    private final LongAdder ordersReady = new LongAdder();
+    private final LongAdder readyNanos = new LongAdder();
+    private final AtomicLong maxReadyNanos = new AtomicLong();
+
+    /**
+     * Creates a kitchen whose stations each hold {@link #DEFAULT_CAPACITY} tasks.
+     */
+    public Kitchen() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a kitchen.
+     *
+     * @param capacity number of tasks each station holds, queued or in progress
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public Kitchen(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        for (int i = 0; i < stations.length; i++) {
+            stations[i] = new StationQueue(capacity);
+        }
+    }
+
+    /**
+     * Registers a listener for order progress.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sends a placed order to the stations, or to the backlog if a station it needs is
+     * full. Never blocks.
+     *
+     * @param order placed order; must not be modified afterwards
+     * @return false if the order is already in the kitchen or has been cancelled,
+     * true otherwise
+     */
+    public boolean submit(Order order) {
+        Ticket ticket = new Ticket(order, System.nanoTime());
+        if (tickets.putIfAbsent(order.getOrderNumber(), ticket) != null) {
+            return false;
+        }
+        // checked after the ticket is visible: a cancel that marks the order after this
+        // check finds the ticket and withdraws it
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            tickets.remove(order.getOrderNumber(), ticket);
+            return false;
+        }
+        List<List<MenuItem>> byStation = new ArrayList<>(stations.length);
+        for (int i = 0; i < stations.length; i++) {
+            byStation.add(new ArrayList<>());
+        }
+        for (MenuItem item : order.getItems()) {
+            byStation.get(Station.of(item.getConfig()).ordinal()).add(item);
+        }
+        for (Station station : Station.values()) {
+            List<MenuItem> items = byStation.get(station.ordinal());
+            if (!items.isEmpty()) {
+                ticket.tasks.add(new Task(ticket, station, items));
+            }
+        }
+        ticket.remaining.set(ticket.tasks.size());
+        if (ticket.tasks.isEmpty()) {
+            // nothing to prepare
+            if (tickets.remove(order.getOrderNumber(), ticket)) {
+                ready(ticket);
+            }
+            return true;
+        }
+        synchronized (backlog) {
+            if (ticket.cancelled) {
+                // withdrawn while its tasks were being made
+                return true;
+            }
+            // admit in arrival order: nothing overtakes an order already waiting
+            if (backlog.isEmpty() && admit(ticket)) {
+                return true;
+            }
+            backlog.add(ticket);
+        }
+        return true;
+    }
+
+    /**
+     * Withdraws an order, for example when it is cancelled. Its queued and backlogged
+     * tasks are dropped; tasks already in progress free their slot when completed.
+     *
+     * @param orderNumber number of the order to withdraw
+     * @return true if the order was in the kitchen and not yet ready
+     */
+    public boolean cancel(int orderNumber) {
+        Ticket ticket = tickets.remove(orderNumber);
+        if (ticket == null) {
+            return false;
+        }
+        withdraw(ticket);
+        return true;
+    }
+
+    /**
+     * Takes the next task for a station, waiting until there is one. Called by kitchen
+     * displays; hand the task back with {@link #complete(Task)} when it is done.
+     *
+     * @param station station to take from
+     * @return the next task
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Task take(Station station) throws InterruptedException {
+        StationQueue sq = stations[station.ordinal()];
+        while (true) {
+            Task task = start(sq, sq.queue.take());
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    /**
+     * Takes the next task for a station, waiting up to the given time for one.
+     *
+     * @param station station to take from
+     * @param timeout how long to wait
+     * @param unit    unit of timeout
+     * @return the next task, or null if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Task poll(Station station, long timeout, TimeUnit unit) throws InterruptedException {
+        StationQueue sq = stations[station.ordinal()];
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            Task next = sq.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return null;
+            }
+            Task task = start(sq, next);
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    /**
+     * Marks a task as prepared. When it is the last task of its order, the order is
+     * ready. Completing a task again has no effect.
+     *
+     * @param task task taken from this kitchen
+     */
+    public void complete(Task task) {
+        if (!task.done.compareAndSet(false, true)) {
+            return;
+        }
+        StationQueue sq = stations[task.station.ordinal()];
+        sq.prepNanos.add(System.nanoTime() - task.startedAt);
+        sq.completed.increment();
+        sq.slots.release();
+        Ticket ticket = task.ticket;
+        if (!ticket.cancelled && ticket.remaining.decrementAndGet() == 0
+                && tickets.remove(ticket.order.getOrderNumber(), ticket)) {
+            ready(ticket);
+        }
+        drainBacklog();
+    }
+
+    /**
+     * Starts worker threads that take a station's tasks, prepare them, and complete
+     * them, until {@link #close()} is called.
+     *
+     * @param station  station to work
+     * @param count    number of workers
+     * @param preparer prepares each task
+     */
+    public void startWorkers(Station station, int count, Preparer preparer) {
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(() -> work(station, preparer),
+                    "kitchen-" + station.name().toLowerCase() + "-" + (workers.size() + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops all worker threads. Tasks they were preparing stay in progress.
+     */
+    @Override
+    public void close() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers.clear();
+    }
+
+    /**
+     * Checks whether orders are waiting for a station to free up. Intake channels
+     * should hold off new orders while this is true.
+     *
+     * @return true if there is a backlog
+     */
+    public boolean isSaturated() {
+        synchronized (backlog) {
+            return !backlog.isEmpty();
+        }
+    }
+
+    /**
+     * Gets the number of orders waiting for a station to free up.
+     *
+     * @return backlog length
+     */
+    public int getBacklog() {
+        synchronized (backlog) {
+            return backlog.size();
+        }
+    }
+
+    /**
+     * Gets the number of orders in the kitchen that are not yet ready, including the
+     * backlog.
+     *
+     * @return open order count
+     */
+    public int getOpenOrders() {
+        return tickets.size();
+    }
+
+    /**
+     * Gets the number of a station's tasks waiting to be taken.
+     *
+     * @param station station
+     * @return queued task count
+     */
+    public int getQueued(Station station) {
+        return stations[station.ordinal()].queue.size();
+    }
+
+    /**
+     * Gets the number of a station's tasks queued or in progress.
+     *
+     * @param station station
+     * @return task count, at most the station's capacity
+     */
+    public int getLoad(Station station) {
+        StationQueue sq = stations[station.ordinal()];
+        return sq.capacity - sq.slots.availablePermits();
+    }
+
+    /**
+     * Gets the number of tasks a station has completed.
+     *
+     * @param station station
+     * @return completed task count
+     */
+    public long getCompleted(Station station) {
+        return stations[station.ordinal()].completed.sum();
+    }
+
+    /**
+     * Gets the average time a station's tasks waited in its queue before being taken.
+     *
+     * @param station station
+     * @return average wait in nanoseconds, or 0 if no task has been completed
+     */
+    public long getAverageWaitNanos(Station station) {
+        StationQueue sq = stations[station.ordinal()];
+        long completed = sq.completed.sum();
+        return completed == 0 ? 0 : sq.waitNanos.sum() / completed;
+    }
+
+    /**
+     * Gets the longest time a task waited in a station's queue.
+     *
+     * @param station station
+     * @return longest wait in nanoseconds
+     */
+    public long getMaxWaitNanos(Station station) {
+        return stations[station.ordinal()].maxWaitNanos.get();
+    }
+
+    /**
+     * Gets the average time a station took to prepare a task.
+     *
+     * @param station station
+     * @return average preparation time in nanoseconds, or 0 if no task has been completed
+     */
+    public long getAveragePrepNanos(Station station) {
+        StationQueue sq = stations[station.ordinal()];
+        long completed = sq.completed.sum();
+        return completed == 0 ? 0 : sq.prepNanos.sum() / completed;
+    }
+
+    /**
+     * Gets the number of orders that have become ready.
+     *
+     * @return ready order count
+     */
+    public long getOrdersReady() {
+        return ordersReady.sum();
+    }
+
+    /**
+     * Gets the average time from submission to ready, backlog time included.
+     *
+     * @return average latency in nanoseconds, or 0 if no order is ready yet
+     */
+    public long getAverageReadyNanos() {
+        long ready = ordersReady.sum();
+        return ready == 0 ? 0 : readyNanos.sum() / ready;
+    }
+
+    /**
+     * Gets the longest time an order took from submission to ready.
+     *
+     * @return longest latency in nanoseconds
+     */
+    public long getMaxReadyNanos() {
+        return maxReadyNanos.get();
+    }
+
+    /**
+     * Reserves a slot at every station the order needs and queues its tasks, or
+     * reserves nothing if any of them is full. Called with the backlog lock held.
+     */
+    private boolean admit(Ticket ticket) {
+        int acquired = 0;
+        for (Task task : ticket.tasks) {
+            if (!stations[task.station.ordinal()].slots.tryAcquire()) {
+                for (int i = 0; i < acquired; i++) {
+                    stations[ticket.tasks.get(i).station.ordinal()].slots.release();
+                }
+                return false;
+            }
+            acquired++;
+        }
+        long now = System.nanoTime();
+        for (Task task : ticket.tasks) {
+            task.queuedAt = now;
+            // cannot fail: the slot reserved above guarantees room
+            stations[task.station.ordinal()].queue.add(task);
+        }
+        return true;
+    }
+
+    /**
+     * Admits backlogged orders, oldest first, until one does not fit.
+     */
+    private void drainBacklog() {
+        synchronized (backlog) {
+            while (!backlog.isEmpty() && admit(backlog.peek())) {
+                backlog.poll();
+            }
+        }
+    }
+
+    /**
+     * Records that a task was taken, or drops it if its order was withdrawn.
+     *
+     * @return the task, or null if it was dropped
+     */
+    private Task start(StationQueue sq, Task task) {
+        if (task.ticket.cancelled) {
+            task.done.set(true);
+            sq.slots.release();
+            drainBacklog();
+            return null;
+        }
+        task.startedAt = System.nanoTime();
+        long wait = task.startedAt - task.queuedAt;
+        sq.waitNanos.add(wait);
+        sq.maxWaitNanos.accumulateAndGet(wait, Math::max);
+        if (task.ticket.started.compareAndSet(false, true)) {
+            for (Listener listener : listeners) {
+                listener.orderStarted(task.ticket.order);
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Drops a ticket's queued and backlogged tasks. The ticket is already out of the
+     * ticket map.
+     */
+    private void withdraw(Ticket ticket) {
+        ticket.cancelled = true;
+        synchronized (backlog) {
+            backlog.remove(ticket);
+        }
+    }
+
+    /**
+     * Gives up on a task that kept failing: frees its slot, withdraws its order, and
+     * tells the listeners.
+     */
+    private void fail(StationQueue sq, Task task, RuntimeException cause) {
+        if (!task.done.compareAndSet(false, true)) {
+            return;
+        }
+        sq.slots.release();
+        Ticket ticket = task.ticket;
+        if (tickets.remove(ticket.order.getOrderNumber(), ticket)) {
+            withdraw(ticket);
+        }
+        for (Listener listener : listeners) {
+            listener.taskFailed(task, cause);
+        }
+        drainBacklog();
+    }
+
+    private void ready(Ticket ticket) {
+        long latency = System.nanoTime() - ticket.submittedAt;
+        ordersReady.increment();
+        readyNanos.add(latency);
+        maxReadyNanos.accumulateAndGet(latency, Math::max);
+        for (Listener listener : listeners) {
+            listener.orderReady(ticket.order);
+        }
+    }
+
+    private void work(Station station, Preparer preparer) {
+        StationQueue sq = stations[station.ordinal()];
+        while (!Thread.currentThread().isInterrupted()) {
+            Task task;
+            try {
+                task = take(station);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                preparer.prepare(task);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (++task.attempts >= MAX_ATTEMPTS) {
+                    fail(sq, task, e);
+                    continue;
+                }
+                // not prepared: put it back after a pause, still holding its slot
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS << (task.attempts - 1));
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                task.queuedAt = System.nanoTime();
+                sq.queue.add(task);
+                continue;
+            }
+            complete(task);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package rucafe;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recent latency samples, such as order wait or preparation times, for reporting
+ * percentiles over a sliding time window.
+ *
+ * Samples are kept in a fixed-size ring, so memory stays bounded however busy the
+ * store is; once the ring is full the oldest sample is overwritten. Only samples
+ * taken within the window are counted. Recording is O(1); a percentile copies and
+ * sorts the samples in the window.
+ *
+ * This class is thread-safe.
+ */
+public class LatencyWindow {
+
+    /** Default number of samples kept. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** Default window length, fifteen minutes. */
+    public static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    private final long windowNanos;
+    // guarded by this; slot of the next sample is count mod capacity
+    private final long[] takenAt;
+    private final long[] values;
+    private long count;
+
+    /**
+     * Constructs a window with the default capacity and length.
+     */
+    public LatencyWindow() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * Constructs a window.
+     *
+     * @param capacity    most samples kept
+     * @param windowNanos how far back samples are counted, in nanoseconds
+     */
+    public LatencyWindow(int capacity, long windowNanos) {
+        if (capacity < 1 || windowNanos < 1) {
+            throw new IllegalArgumentException("capacity and window must be positive");
+        }
+        this.windowNanos = windowNanos;
+        this.takenAt = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param nanos {@link System#nanoTime()} the sample was taken
+     * @param value latency in nanoseconds
+     */
+    public synchronized void record(long nanos, long value) {
+        int slot = (int) (count++ % values.length);
+        takenAt[slot] = nanos;
+        values[slot] = value;
+    }
+
+    /**
+     * Gets the number of samples in the window.
+     *
+     * @return samples taken within the window
+     */
+    public int size() {
+        return inWindow(System.nanoTime()).length;
+    }
+
+    /**
+     * Gets a percentile of the samples in the window, by the nearest-rank method.
+     *
+     * @param percentile percentile between 0 and 100, such as 50 for the median
+     * @return the latency in nanoseconds, or -1 if there are no samples in the window
+     */
+    public long percentile(double percentile) {
+        return percentiles(percentile)[0];
+    }
+
+    /**
+     * Gets several percentiles of the samples in the window from a single sort.
+     *
+     * @param percentiles percentiles between 0 and 100
+     * @return the latencies in nanoseconds, in the same order, all -1 if there are
+     * no samples in the window
+     */
+    public long[] percentiles(double... percentiles) {
+        long[] sorted = inWindow(System.nanoTime());
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double p = percentiles[i];
+            if (p < 0 || p > 100) {
+                throw new IllegalArgumentException("Percentile out of range: " + p);
+            }
+            if (sorted.length == 0) {
+                result[i] = -1;
+            } else {
+                int rank = (int) Math.ceil(p / 100 * sorted.length);
+                result[i] = sorted[Math.max(rank, 1) - 1];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies out the samples taken within the window ending at the given time.
+     */
+    private synchronized long[] inWindow(long now) {
+        int held = (int) Math.min(count, values.length);
+        long[] copy = new long[held];
+        int n = 0;
+        for (int i = 0; i < held; i++) {
+            if (now - takenAt[i] <= windowNanos) {
+                copy[n++] = values[i];
+            }
+        }
+        return n == held ? copy : Arrays.copyOf(copy, n);
+    }
+}
@@ -2,28 +2,89 @@ package rucafe;
 
 /**
  * Abstract base class for all menu items in the cafe.
- * Each menu item has a quantity and can compute its own price.
+ * Each menu item is an interned, immutable {@link ItemConfig} plus a quantity,
+ * and its price is the configuration's unit price times the quantity.
+ * The unit price is taken from the {@link PriceCatalog} when the item is created
+ * or its options change, so a price list reload never reprices an existing line.
+ * Changing an option swaps in the matching shared configuration, so items
+ * never allocate per-line option state.
+ * An item belongs to at most one {@link Order}, which is told whenever
+ * the item's price changes so it can keep its running totals current.
+ *
+ * The menu is closed: {@link Donut}, {@link Coffee}, and {@link Sandwich} are the only
+ * kinds of item, and the constructor is package-private because every item must be
+ * backed by one of their configurations.
  *
  * @author Sunghyun Kim
  */
 public abstract class MenuItem {
 
+    private ItemConfig config;
+    private long unitCents;
     private int quantity;
+    private Order owner;
+    private int lineId;
 
     /**
-     * Default constructor that sets the quantity to 1.
+     * Constructor that sets the configuration and quantity.
+     *
+     * @param config   item configuration
+     * @param quantity number of units for this menu item
      */
-    public MenuItem() {
-        this(1);
+    MenuItem(ItemConfig config, int quantity) {
+        this.config = config;
+        this.unitCents = config.getUnitCents();
+        this.quantity = quantity;
     }
 
     /**
-     * Constructor that sets the quantity to the given value.
+     * Gets the configuration of this item.
      *
-     * @param quantity number of units for this menu item
+     * @return the shared configuration
      */
-    public MenuItem(int quantity) {
-        this.quantity = quantity;
+    public ItemConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Replaces the configuration of this item. Subclasses call this from every
+     * option mutator.
+     *
+     * @param config new configuration, of the same kind
+     * @throws IllegalArgumentException if the item would merge into a line of its order
+     *                                  whose quantity would overflow
+     */
+    final void setConfig(ItemConfig config) {
+        if (owner != null) {
+            owner.checkConfigChange(this, config);
+        }
+        ItemConfig previous = this.config;
+        long before = priceCents();
+        this.config = config;
+        this.unitCents = config.getUnitCents();
+        changed(before);
+        if (owner != null && previous != config) {
+            owner.configChanged(this, previous);
+        }
+    }
+
+    /**
+     * Gets the unit price this item is charged at.
+     *
+     * @return unit price in cents
+     */
+    public long getUnitCents() {
+        return unitCents;
+    }
+
+    /**
+     * Sets the unit price this item is charged at, for rebuilding an item sold at an
+     * earlier price. Only called on items not in an order.
+     *
+     * @param unitCents unit price in cents
+     */
+    void setUnitCents(long unitCents) {
+        this.unitCents = unitCents;
     }
 
     /**
@@ -41,16 +102,92 @@ public abstract class MenuItem {
      * @param quantity the new quantity to set
      */
     public void setQuantity(int quantity) {
+        long before = priceCents();
         this.quantity = quantity;
+        changed(before);
     }
 
     /**
-     * Computes the total price for this menu item,
-     * usually based on the base price, options, and quantity.
+     * Gets the order this item currently belongs to.
+     *
+     * @return owning order, or null if the item is not in an order
+     */
+    Order getOwner() {
+        return owner;
+    }
+
+    /**
+     * Gets the id of this item's line within its order.
+     *
+     * @return line id, or 0 if the item is not in an order
+     */
+    public int getLineId() {
+        return lineId;
+    }
+
+    /**
+     * Sets the order this item belongs to and its line id there.
+     * Called by {@link Order} on add/remove.
+     *
+     * @param owner  owning order, or null
+     * @param lineId line id within the order, or 0
+     */
+    void setOwner(Order owner, int lineId) {
+        this.owner = owner;
+        this.lineId = lineId;
+    }
+
+    /**
+     * Notifies the owning order that this item changed and its price may have changed.
+     *
+     * @param before price in cents before the change
+     */
+    private void changed(long before) {
+        if (owner != null) {
+            owner.lineChanged(this, priceCents() - before);
+        }
+    }
+
+    /**
+     * Computes the total price for this menu item in cents:
+     * the unit price it was priced at times the quantity.
+     *
+     * @return the total price for this menu item in cents
+     */
+    public long priceCents() {
+        return unitCents * quantity;
+    }
+
+    /**
+     * Computes the total price for this menu item in dollars.
      *
      * @return the total price for this menu item
      */
-    public abstract double price();
+    public double price() {
+        return priceCents() / 100.0;
+    }
+
+    /**
+     * Two items are equal if they share a configuration; quantity is not compared.
+     * Configurations are interned, so this is a single reference comparison.
+     *
+     * @param obj object to compare
+     * @return true if logically equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MenuItem && ((MenuItem) obj).config == config;
+    }
+
+    /**
+     * Hash code consistent with {@link #equals(Object)}; quantity is not included.
+     *
+     * @return the configuration's cached hash
+     */
+    @Override
+    public int hashCode() {
+        return config.hashCode();
+    }
 
     /**
      * Returns a string representation of this menu item.
@@ -59,6 +196,6 @@ public abstract class MenuItem {
      */
     @Override
     public String toString() {
-        return "MenuItem (quantity=" + quantity + ")";
+        return "MenuItem (" + config + ", quantity=" + quantity + ")";
     }
-}
\ No newline at end of file
+}
@@ -1,29 +1,112 @@
 package rucafe;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Represents a single customer order, containing multiple menu items.
  * Provides methods to add/remove items and compute subtotal, tax, and total.
+ * The subtotal is kept as a running total updated on add/remove and whenever
+ * an item in the order changes price, so reading totals is O(1).
+ * {@link #getItems()} returns an immutable snapshot that is only rebuilt after
+ * the order is modified, and {@link #getVersion()} identifies each change.
+ *
+ * A coalescing order keeps one line per {@link ItemConfig}: adding an item equal to
+ * that line, at the same unit price, adds to the line's quantity, and removing an equal
+ * item takes its quantity off the line. Lines are found through a hash index on the
+ * configuration instead of a scan. An item priced differently from the line, because
+ * the price list was reloaded in between, starts a new line at its own price so every
+ * unit is charged what it was priced at; later equal items go to that newest line.
+ *
+ * Every line is given a line id when it is added, unique within the order and
+ * stable until the line is removed. Lines are stored in insertion order keyed by
+ * line id, so adding a line and removing one by line id are O(1) even for orders
+ * with thousands of lines.
+ *
+ * Registered {@link Listener}s are told about every line that is added, removed, or
+ * changed, with its position in {@link #getItems()}, so views can apply just that change.
+ *
+ * Each order tracks its {@link OrderStatus}, with a {@link System#nanoTime()} stamp
+ * for every state it has reached, so wait and preparation times can be measured.
+ *
+ * An order is not thread-safe; it is built on one thread and treated as read-only
+ * once it has been placed. Once placed, its status is only changed through the
+ * {@link StoreOrders} that holds it, and it and its time stamps may be read from any
+ * thread.
  *
  * @author Sunghyun Kim
  */
 public class Order implements Customizable {
 
-    private static final double TAX_RATE = 0.06625; // 예: NJ sales tax, 지침에 맞게 수정
+    /**
+     * Receives changes to the lines of an order. Called on the thread that changed
+     * the order, after the change. Positions are indexes into {@link #getItems()}.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a line is added.
+         *
+         * @param index position of the new line
+         * @param line  the new line
+         */
+        void lineAdded(int index, MenuItem line);
+
+        /**
+         * Called after a line is removed.
+         *
+         * @param index position the line had before it was removed
+         * @param line  the removed line
+         */
+        void lineRemoved(int index, MenuItem line);
+
+        /**
+         * Called after a line's quantity or options change.
+         *
+         * @param index position of the line
+         * @param line  the changed line
+         */
+        void lineUpdated(int index, MenuItem line);
+    }
 
     private int orderNumber;
-    private final List<MenuItem> items;
+    private final IntKeyedList<MenuItem> items;
+    private int nextLineId = 1;
+    private long subtotalCents;
+    private long version;
+    private List<MenuItem> snapshot;
+    private long storeSequence;
+    private long placedAt;
+    private volatile OrderStatus status = OrderStatus.NEW;
+    /** System.nanoTime of reaching each status, indexed by ordinal; 0 if not reached. */
+    private final AtomicLongArray statusNanos = new AtomicLongArray(OrderStatus.values().length);
+    /** Line for each configuration; null unless coalescing. */
+    private final Map<ItemConfig, MenuItem> lines;
+    private List<Listener> listeners;
 
     /**
-     * Constructs an Order with the given order number.
+     * Constructs an Order with the given order number that keeps every added item
+     * as its own line.
      *
      * @param orderNumber unique order number
      */
     public Order(int orderNumber) {
+        this(orderNumber, false);
+    }
+
+    /**
+     * Constructs an Order with the given order number.
+     *
+     * @param orderNumber unique order number
+     * @param coalescing  true to merge equal items into one line
+     */
+    public Order(int orderNumber, boolean coalescing) {
         this.orderNumber = orderNumber;
-        this.items = new ArrayList<>();
+        this.items = new IntKeyedList<>();
+        this.lines = coalescing ? new HashMap<>() : null;
     }
 
     /**
@@ -36,39 +119,126 @@ public class Order implements Customizable {
     }
 
     /**
-     * Sets the order number.
+     * Sets the order number. Only {@link DataManager} numbers orders, as it places them;
+     * a stored order is never renumbered.
      *
      * @param orderNumber new order number
      */
-    public void setOrderNumber(int orderNumber) {
+    void setOrderNumber(int orderNumber) {
         this.orderNumber = orderNumber;
     }
 
     /**
-     * Gets an unmodifiable list of items in this order.
+     * Gets an unmodifiable snapshot of the items in this order. The same snapshot is
+     * returned until the order is next modified, so repeated calls do not copy.
      *
      * @return list of menu items
      */
     public List<MenuItem> getItems() {
-        return List.copyOf(items);
+        List<MenuItem> current = snapshot;
+        if (current == null) {
+            current = items.toList();
+            snapshot = current;
+        }
+        return current;
     }
 
     /**
-     * Adds a menu item to this order.
+     * Gets the number of items in this order.
      *
-     * @param obj should be a MenuItem
+     * @return number of menu items
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Gets the version of this order, which increases every time an item is added
+     * or removed or an item's price changes.
+     *
+     * @return current version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether this order merges equal items into one line.
+     *
+     * @return true if coalescing
+     */
+    public boolean isCoalescing() {
+        return lines != null;
+    }
+
+    /**
+     * Adds a menu item to this order. An item can only belong to one order at a time.
+     * In a coalescing order, an item equal to an existing line at the same unit price is
+     * not added itself; its quantity is added to that line instead.
+     *
+     * @param obj should be a MenuItem not already in an order
      * @return true if added, false otherwise
+     * @throws IllegalArgumentException if merging the item would overflow the line's quantity
      */
     @Override
     public boolean add(Object obj) {
         if (!(obj instanceof MenuItem)) {
             return false;
         }
-        return items.add((MenuItem) obj);
+        MenuItem item = (MenuItem) obj;
+        if (item.getOwner() != null) {
+            return false;
+        }
+        if (lines != null) {
+            MenuItem line = lines.get(item.getConfig());
+            if (line != null && line.getUnitCents() == item.getUnitCents()) {
+                line.setQuantity(mergedQuantity(line, item));
+                return true;
+            }
+            lines.put(item.getConfig(), item);
+        }
+        int lineId = nextLineId++;
+        items.add(lineId, item);
+        item.setOwner(this, lineId);
+        subtotalCents += item.priceCents();
+        modified();
+        if (listeners != null) {
+            int index = items.size() - 1;
+            for (Listener listener : listeners) {
+                listener.lineAdded(index, item);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers a listener for line changes.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(Listener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(2);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(Listener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
     }
 
     /**
      * Removes a menu item from this order.
+     * In a coalescing order, passing a line of this order removes the whole line, and
+     * passing any other equal item takes its quantity off the matching line, removing
+     * the line once nothing is left.
      *
      * @param obj should be a MenuItem
      * @return true if removed, false otherwise
@@ -78,7 +248,296 @@ public class Order implements Customizable {
         if (!(obj instanceof MenuItem)) {
             return false;
         }
-        return items.remove((MenuItem) obj);
+        MenuItem item = (MenuItem) obj;
+        if (lines == null) {
+            MenuItem line = item.getOwner() == this ? item : find(item);
+            if (line == null) {
+                return false;
+            }
+            detach(line);
+            return true;
+        }
+        MenuItem line = item.getOwner() == this ? item : lines.get(item.getConfig());
+        if (line == null) {
+            return false;
+        }
+        int remaining = line.getQuantity() - item.getQuantity();
+        if (line != item && remaining > 0) {
+            line.setQuantity(remaining);
+        } else {
+            unindex(line.getConfig(), line);
+            detach(line);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the line with the given line id.
+     *
+     * @param lineId line id
+     * @return the line, or null if this order has no such line
+     */
+    public MenuItem getLine(int lineId) {
+        return items.get(lineId);
+    }
+
+    /**
+     * Removes a whole line by its line id, in O(1).
+     *
+     * @param lineId line id
+     * @return the removed line, or null if this order has no such line
+     */
+    public MenuItem removeLine(int lineId) {
+        MenuItem line = items.get(lineId);
+        if (line == null) {
+            return null;
+        }
+        if (lines != null) {
+            unindex(line.getConfig(), line);
+        }
+        detach(line);
+        return line;
+    }
+
+    /**
+     * Re-indexes a line of a coalescing order whose configuration was changed in place.
+     * If another line already has the new configuration at the same unit price, the
+     * changed line is merged into it and leaves the order.
+     *
+     * @param line     line whose configuration changed
+     * @param previous configuration before the change
+     */
+    void configChanged(MenuItem line, ItemConfig previous) {
+        if (lines == null) {
+            return;
+        }
+        unindex(previous, line);
+        MenuItem existing = lines.get(line.getConfig());
+        if (existing != null && existing.getUnitCents() == line.getUnitCents()) {
+            detach(line);
+            existing.setQuantity(mergedQuantity(existing, line));
+        } else {
+            lines.put(line.getConfig(), line);
+        }
+    }
+
+    /**
+     * Checks that changing a line's configuration would not overflow the quantity of
+     * the line it merges into. Called before the change is made.
+     *
+     * @param line line about to change
+     * @param next configuration it is changing to
+     * @throws IllegalArgumentException if the merged quantity would overflow
+     */
+    void checkConfigChange(MenuItem line, ItemConfig next) {
+        if (lines == null) {
+            return;
+        }
+        MenuItem existing = lines.get(next);
+        if (existing != null && existing != line && existing.getUnitCents() == next.getUnitCents()) {
+            mergedQuantity(existing, line);
+        }
+    }
+
+    private static int mergedQuantity(MenuItem line, MenuItem merged) {
+        try {
+            return Math.addExact(line.getQuantity(), merged.getQuantity());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Quantity of " + line.getConfig() + " would exceed "
+                    + Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Applies a change to one of this order's lines: adds its price change to the
+     * running subtotal and tells listeners.
+     *
+     * @param line       line that changed
+     * @param deltaCents change in the line's price in cents
+     */
+    void lineChanged(MenuItem line, long deltaCents) {
+        subtotalCents += deltaCents;
+        version++;
+        if (listeners != null) {
+            int index = items.indexOf(line.getLineId());
+            for (Listener listener : listeners) {
+                listener.lineUpdated(index, line);
+            }
+        }
+    }
+
+    /**
+     * Gets the time this order was placed.
+     *
+     * @return epoch millis when placed, or 0 if not placed
+     */
+    public long getPlacedAt() {
+        return placedAt;
+    }
+
+    /**
+     * Sets the time this order was placed. Called when the order is placed or replayed.
+     *
+     * @param placedAt epoch millis when placed
+     */
+    void setPlacedAt(long placedAt) {
+        this.placedAt = placedAt;
+    }
+
+    /**
+     * Gets where this order is in its life.
+     *
+     * @return current status
+     */
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets when this order reached a status, on the {@link System#nanoTime()} clock.
+     *
+     * @param status status to look up
+     * @return nano time the status was reached, or 0 if it has not been reached
+     */
+    public long getStatusNanos(OrderStatus status) {
+        return statusNanos.get(status.ordinal());
+    }
+
+    /**
+     * Gets how long this order waited between being placed and being started.
+     *
+     * @return wait in nanoseconds, or -1 if not started yet
+     */
+    public long getWaitNanos() {
+        return elapsed(OrderStatus.PLACED, OrderStatus.IN_PROGRESS);
+    }
+
+    /**
+     * Gets how long this order took to prepare, from being started to being ready.
+     *
+     * @return preparation time in nanoseconds, or -1 if not ready yet
+     */
+    public long getPrepNanos() {
+        return elapsed(OrderStatus.IN_PROGRESS, OrderStatus.READY);
+    }
+
+    private long elapsed(OrderStatus from, OrderStatus to) {
+        // the later stamp first: once it is set, the earlier one is too
+        long end = statusNanos.get(to.ordinal());
+        return end == 0 ? -1 : end - statusNanos.get(from.ordinal());
+    }
+
+    /**
+     * Moves this order to a new status and stamps the time. An order marked ready
+     * straight from placed is stamped as started at the same moment.
+     *
+     * @param next  status to move to
+     * @param nanos {@link System#nanoTime()} of the move
+     * @return true if moved, false if the move is not allowed from the current status
+     */
+    boolean advance(OrderStatus next, long nanos) {
+        OrderStatus from = status;
+        if (!from.canAdvanceTo(next)) {
+            return false;
+        }
+        if (from == OrderStatus.PLACED && next == OrderStatus.READY) {
+            statusNanos.set(OrderStatus.IN_PROGRESS.ordinal(), nanos);
+        }
+        // stamps are set before the status, so a reader that sees the status sees its stamp
+        statusNanos.set(next.ordinal(), nanos);
+        status = next;
+        return true;
+    }
+
+    /**
+     * Gets the sequence number assigned when this order was added to a {@link StoreOrders}.
+     *
+     * @return store sequence number, or 0 if never stored
+     */
+    long getStoreSequence() {
+        return storeSequence;
+    }
+
+    /**
+     * Sets the sequence number that orders this order within its {@link StoreOrders}.
+     *
+     * @param storeSequence store sequence number
+     */
+    void setStoreSequence(long storeSequence) {
+        this.storeSequence = storeSequence;
+    }
+
+    /**
+     * Drops a line from the configuration index if it is the line indexed there. Lines
+     * are compared by identity, since an older line of the same configuration is equal.
+     */
+    private void unindex(ItemConfig config, MenuItem line) {
+        if (lines.get(config) == line) {
+            lines.remove(config);
+        }
+    }
+
+    /**
+     * Takes a line out of the line storage and the running subtotal.
+     */
+    private void detach(MenuItem line) {
+        int index = listeners == null ? -1 : items.indexOf(line.getLineId());
+        items.remove(line.getLineId());
+        line.setOwner(null, 0);
+        subtotalCents -= line.priceCents();
+        modified();
+        if (listeners != null) {
+            for (Listener listener : listeners) {
+                listener.lineRemoved(index, line);
+            }
+        }
+    }
+
+    /**
+     * Finds the first line equal to the given item.
+     */
+    private MenuItem find(MenuItem item) {
+        for (MenuItem line : items) {
+            if (line.equals(item)) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the cached item snapshot after a structural change.
+     */
+    private void modified() {
+        snapshot = null;
+        version++;
+    }
+
+    /**
+     * Computes the subtotal for all menu items in this order.
+     *
+     * @return subtotal amount in cents
+     */
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * Computes the tax amount based on subtotal, rounded to the nearest cent.
+     *
+     * @return tax amount in cents
+     */
+    public long getTaxCents() {
+        return PriceTable.tax(subtotalCents);
+    }
+
+    /**
+     * Computes the total amount (subtotal + tax).
+     *
+     * @return total amount in cents
+     */
+    public long getTotalCents() {
+        return subtotalCents + PriceTable.tax(subtotalCents);
     }
 
     /**
@@ -87,11 +546,7 @@ public class Order implements Customizable {
      * @return subtotal amount
      */
     public double getSubtotal() {
-        double sum = 0;
-        for (MenuItem item : items) {
-            sum += item.price();
-        }
-        return sum;
+        return getSubtotalCents() / 100.0;
     }
 
     /**
@@ -100,7 +555,7 @@ public class Order implements Customizable {
      * @return tax amount
      */
     public double getTax() {
-        return getSubtotal() * TAX_RATE;
+        return getTaxCents() / 100.0;
     }
 
     /**
@@ -109,7 +564,7 @@ public class Order implements Customizable {
      * @return total amount
      */
     public double getTotal() {
-        return getSubtotal() + getTax();
+        return getTotalCents() / 100.0;
     }
 
     @Override
@@ -0,0 +1,458 @@
+package rucafe;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless HTTP API for placing and reading orders, built on the JDK's embedded
+ * HTTP server with one virtual thread per request.
+ *
+ * <ul>
+ *     <li>{@code POST /orders} places an order from a JSON body such as
+ *     {@code {"items":[{"kind":"coffee","size":"GRANDE","addIns":["MOCHA"],"quantity":2}]}}.
+ *     Donuts take {@code type} and {@code flavor}; sandwiches take {@code bread},
+ *     {@code protein}, and {@code extras}. Responds 201 with the placed order.</li>
+ *     <li>{@code POST /orders/batch} places many orders at once from a body such as
+ *     {@code {"orders":[{"items":[...]},{"items":[...]}]}}. The orders get contiguous
+ *     numbers and are journaled with one sync. Responds 201 with the placed orders.</li>
+ *     <li>{@code GET /orders} lists all store orders.</li>
+ *     <li>{@code GET /orders/{number}} returns one order, or 404.</li>
+ *     <li>{@code POST /orders/{number}/pickup} records that a ready order was handed
+ *     over. Responds 204, 404 if there is no such order, or 409 if it is not ready.</li>
+ *     <li>{@code GET /orders/stats} returns the number of stored orders in each
+ *     {@link OrderStatus} from placed to picked up, and the 50th, 90th, and 99th percentile wait and preparation
+ *     times over the recent window, in milliseconds.</li>
+ *     <li>{@code POST /prices/reload} rereads the price list through
+ *     {@link PriceCatalog#reload()} and responds with the version in use and whether
+ *     it changed.</li>
+ * </ul>
+ *
+ * While the {@link Kitchen} has a backlog, both POST endpoints respond 503 with a
+ * {@code Retry-After} header instead of placing more orders.
+ *
+ * Orders are placed through {@link DataManager#placeOrder(Order)} and
+ * {@link DataManager#placeOrders(List)}, so they are
+ * numbered, journaled, and stored exactly like orders placed from the registers.
+ */
+public class OrderApiServer {
+
+    /** Largest request body accepted, in bytes. */
+    private static final int MAX_BODY = 1024 * 1024;
+
+    /** Seconds clients are asked to wait when the kitchen is at capacity. */
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    /** Largest quantity accepted for one item. */
+    private static final int MAX_QUANTITY = 999;
+
+    private final DataManager dataManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to the given address. Call {@link #start()} to begin serving.
+     *
+     * @param dataManager where orders are placed and read
+     * @param address     address to listen on
+     * @throws IOException if the address cannot be bound
+     */
+    public OrderApiServer(DataManager dataManager, InetSocketAddress address) throws IOException {
+        this.dataManager = dataManager;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/orders", this::handle);
+        server.createContext("/prices", this::handle);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to the given delay for in-flight requests.
+     *
+     * @param delaySeconds maximum seconds to wait for in-flight requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Gets the address the server is listening on.
+     *
+     * @return bound address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Runs the API without the desktop UI.
+     *
+     * @param args optional port number (default 8080)
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        DataManager dataManager = DataManager.getInstance();
+        OrderApiServer api = new OrderApiServer(dataManager, new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop(1);
+            dataManager.shutdown();
+        }));
+        api.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            sendError(exchange, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if (path.equals("/orders") || path.equals("/orders/")) {
+            if (method.equals("POST")) {
+                placeOrder(exchange);
+            } else if (method.equals("GET")) {
+                listOrders(exchange);
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } else if (path.equals("/orders/batch")) {
+            if (method.equals("POST")) {
+                placeOrders(exchange);
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } else if (path.equals("/orders/stats")) {
+            if (method.equals("GET")) {
+                orderStats(exchange);
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } else if (path.startsWith("/orders/") && path.endsWith("/pickup")) {
+            if (method.equals("POST")) {
+                pickUpOrder(exchange, path.substring("/orders/".length(), path.length() - "/pickup".length()));
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } else if (path.startsWith("/orders/")) {
+            if (method.equals("GET")) {
+                getOrder(exchange, path.substring("/orders/".length()));
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } else if (path.equals("/prices/reload")) {
+            if (method.equals("POST")) {
+                reloadPrices(exchange);
+            } else {
+                sendError(exchange, 405, "Method not allowed");
+            }
+        } else {
+            sendError(exchange, 404, "Not found");
+        }
+    }
+
+    private void reloadPrices(HttpExchange exchange) throws IOException {
+        boolean reloaded;
+        try {
+            reloaded = PriceCatalog.reload();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        send(exchange, 200, new StringBuilder(48)
+                .append("{\"version\":").append(PriceCatalog.current().getVersion())
+                .append(",\"reloaded\":").append(reloaded).append('}'));
+    }
+
+    private void placeOrder(HttpExchange exchange) throws IOException {
+        if (kitchenSaturated(exchange)) {
+            return;
+        }
+        Order order = parseOrder(readBody(exchange));
+        dataManager.placeOrder(order);
+        send(exchange, 201, ExportFormat.appendJson(new StringBuilder(256), order));
+    }
+
+    private void placeOrders(HttpExchange exchange) throws IOException {
+        if (kitchenSaturated(exchange)) {
+            return;
+        }
+        List<Order> orders = parseOrders(readBody(exchange));
+        dataManager.placeOrders(orders);
+        send(exchange, 201, appendJson(orders));
+    }
+
+    /**
+     * Turns the request away if the kitchen cannot keep up, so clients back off.
+     */
+    private boolean kitchenSaturated(HttpExchange exchange) throws IOException {
+        Kitchen kitchen = dataManager.getKitchen();
+        if (kitchen == null || !kitchen.isSaturated()) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+        sendError(exchange, 503, "Kitchen is at capacity, try again shortly");
+        return true;
+    }
+
+    private void listOrders(HttpExchange exchange) throws IOException {
+        send(exchange, 200, appendJson(dataManager.getStoreOrders().getOrders()));
+    }
+
+    private static StringBuilder appendJson(List<Order> orders) {
+        StringBuilder sb = new StringBuilder(64 + orders.size() * 256).append('[');
+        for (int i = 0; i < orders.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            ExportFormat.appendJson(sb, orders.get(i));
+        }
+        return sb.append(']');
+    }
+
+    private void getOrder(HttpExchange exchange, String number) throws IOException {
+        int orderNumber;
+        try {
+            orderNumber = Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        Order order = dataManager.getStoreOrders().findByNumber(orderNumber);
+        if (order == null) {
+            sendError(exchange, 404, "Order #" + orderNumber + " not found");
+            return;
+        }
+        send(exchange, 200, ExportFormat.appendJson(new StringBuilder(256), order));
+    }
+
+    private void pickUpOrder(HttpExchange exchange, String number) throws IOException {
+        int orderNumber;
+        try {
+            orderNumber = Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        Order order = dataManager.getStoreOrders().findStored(orderNumber);
+        if (order == null) {
+            sendError(exchange, 404, "Order #" + orderNumber + " not found");
+        } else if (!dataManager.pickUpOrder(orderNumber)) {
+            sendError(exchange, 409, "Order #" + orderNumber + " is " + order.getStatus());
+        } else {
+            exchange.sendResponseHeaders(204, -1);
+        }
+    }
+
+    private void orderStats(HttpExchange exchange) throws IOException {
+        StoreOrders store = dataManager.getStoreOrders();
+        StringBuilder sb = new StringBuilder(256).append("{\"counts\":{");
+        for (OrderStatus status : OrderStatus.values()) {
+            // cancelled orders leave the store and are never counted
+            if (status != OrderStatus.NEW && status != OrderStatus.CANCELLED) {
+                if (status != OrderStatus.PLACED) {
+                    sb.append(',');
+                }
+                sb.append('"').append(status).append("\":").append(store.count(status));
+            }
+        }
+        sb.append("},\"waitMillis\":");
+        appendPercentiles(sb, store.getWaitTimes());
+        sb.append(",\"prepMillis\":");
+        appendPercentiles(sb, store.getPrepTimes());
+        send(exchange, 200, sb.append('}'));
+    }
+
+    private static void appendPercentiles(StringBuilder sb, LatencyWindow window) {
+        long[] nanos = window.percentiles(50, 90, 99);
+        sb.append("{\"p50\":").append(millis(nanos[0]))
+                .append(",\"p90\":").append(millis(nanos[1]))
+                .append(",\"p99\":").append(millis(nanos[2])).append('}');
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "null" : String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Builds an unplaced order from a request body.
+     *
+     * @param body JSON request body
+     * @return order holding the requested items, with equal items merged into one line
+     * @throws IllegalArgumentException if the body does not describe a valid order
+     */
+    static Order parseOrder(String body) {
+        return parseOrder(Json.parse(body));
+    }
+
+    /**
+     * Builds unplaced orders from a batch request body.
+     *
+     * @param body JSON request body with an {@code "orders"} array
+     * @return orders in request order
+     * @throws IllegalArgumentException if the body does not describe valid orders
+     */
+    static List<Order> parseOrders(String body) {
+        Object root = Json.parse(body);
+        Object orders = root instanceof Map ? ((Map<?, ?>) root).get("orders") : null;
+        if (!(orders instanceof List) || ((List<?>) orders).isEmpty()) {
+            throw new IllegalArgumentException("Expected a non-empty \"orders\" array");
+        }
+        List<Order> parsed = new ArrayList<>(((List<?>) orders).size());
+        for (Object order : (List<?>) orders) {
+            parsed.add(parseOrder(order));
+        }
+        return parsed;
+    }
+
+    private static Order parseOrder(Object root) {
+        if (!(root instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        Object items = ((Map<?, ?>) root).get("items");
+        if (!(items instanceof List) || ((List<?>) items).isEmpty()) {
+            throw new IllegalArgumentException("Expected a non-empty \"items\" array");
+        }
+        Order order = new Order(0, true);
+        for (Object item : (List<?>) items) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("Each item must be a JSON object");
+            }
+            order.add(parseItem((Map<?, ?>) item));
+        }
+        return order;
+    }
+
+    private static MenuItem parseItem(Map<?, ?> item) {
+        String kind = text(item, "kind").toLowerCase(Locale.ROOT);
+        int quantity = quantity(item);
+        switch (kind) {
+            case "donut":
+                return new Donut(constant(DonutType.class, item, "type"),
+                        constant(DonutFlavor.class, item, "flavor"), quantity);
+            case "coffee": {
+                Coffee coffee = new Coffee(constant(CupSize.class, item, "size"), quantity);
+                for (String name : names(item, "addIns")) {
+                    coffee.add(constant(CoffeeAddIn.class, name, "addIns"));
+                }
+                return coffee;
+            }
+            case "sandwich": {
+                Sandwich sandwich = new Sandwich(constant(Bread.class, item, "bread"),
+                        constant(Protein.class, item, "protein"), quantity);
+                for (String name : names(item, "extras")) {
+                    sandwich.add(constant(SandwichExtra.class, name, "extras"));
+                }
+                return sandwich;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown item kind \"" + kind + "\"");
+        }
+    }
+
+    private static String text(Map<?, ?> item, String field) {
+        Object value = item.get(field);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Missing string field \"" + field + "\"");
+        }
+        return (String) value;
+    }
+
+    private static int quantity(Map<?, ?> item) {
+        Object value = item.get("quantity");
+        if (value == null) {
+            return 1;
+        }
+        if (!(value instanceof Long) || (Long) value < 1 || (Long) value > MAX_QUANTITY) {
+            throw new IllegalArgumentException("\"quantity\" must be an integer from 1 to " + MAX_QUANTITY);
+        }
+        return (int) (long) (Long) value;
+    }
+
+    private static List<String> names(Map<?, ?> item, String field) {
+        Object value = item.get(field);
+        if (value == null) {
+            return List.of();
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("\"" + field + "\" must be an array of names");
+        }
+        for (Object name : (List<?>) value) {
+            if (!(name instanceof String)) {
+                throw new IllegalArgumentException("\"" + field + "\" must be an array of names");
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<String> names = (List<String>) value;
+        return names;
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, Map<?, ?> item, String field) {
+        return constant(type, text(item, field), field);
+    }
+
+    private static <E extends Enum<E>> E constant(Class<E> type, String name, String field) {
+        try {
+            return Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + field + " \"" + name + "\"");
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        ExportFormat.appendJsonString(sb, message == null ? "" : message);
+        send(exchange, status, sb.append('}'));
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package rucafe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Columnar archive of closed orders held outside the Java heap.
+ *
+ * Each order is stored as one row of order columns (number, placement time, subtotal,
+ * first line, line count) and one row of line columns per line (item kind,
+ * configuration code, quantity, price in cents). Every column is a packed primitive
+ * array in its own direct buffer, so archived history adds no objects for the garbage
+ * collector to trace. Orders are found by number through an {@link IntIntHashMap}
+ * from order number to row.
+ *
+ * Scans hand out primitive values and the shared {@link ItemConfig}s and never create
+ * {@link MenuItem}s; only {@link #restore(int)} rebuilds an {@link Order}.
+ *
+ * The archive can be saved with {@link #writeTo(WritableByteChannel)} and loaded back
+ * with {@link #readFrom(ReadableByteChannel)}. The columns are written as they are, so
+ * loading is a bulk copy and does not decode orders one by one.
+ *
+ * This class is thread-safe.
+ */
+public class OrderArchive {
+
+    /**
+     * Receives archived orders during a scan.
+     */
+    public interface OrderVisitor {
+
+        /**
+         * Called for each archived order, in archive order.
+         *
+         * @param orderNumber   order number
+         * @param placedAt      epoch millis when the order was placed
+         * @param lineCount     number of lines in the order
+         * @param subtotalCents subtotal in cents
+         */
+        void order(int orderNumber, long placedAt, int lineCount, long subtotalCents);
+    }
+
+    /**
+     * Receives archived order lines during a scan.
+     */
+    public interface LineVisitor {
+
+        /**
+         * Called for each line of each archived order, in archive order.
+         *
+         * @param orderNumber number of the order the line belongs to
+         * @param placedAt    epoch millis when the order was placed
+         * @param config      configuration of the line
+         * @param quantity    quantity of the line
+         * @param cents       price of the line in cents
+         */
+        void line(int orderNumber, long placedAt, ItemConfig config, int quantity, long cents);
+    }
+
+    /** Marks a saved archive: "RUAR". */
+    private static final int MAGIC = 0x52554152;
+    private static final int FORMAT = 1;
+
+    private static final int INITIAL_ORDERS = 1024;
+    private static final int INITIAL_LINES = 4096;
+
+    // order columns
+    private ByteBuffer numbers = column(INITIAL_ORDERS, Integer.BYTES);
+    private ByteBuffer placedAts = column(INITIAL_ORDERS, Long.BYTES);
+    private ByteBuffer subtotals = column(INITIAL_ORDERS, Long.BYTES);
+    private ByteBuffer firstLines = column(INITIAL_ORDERS, Integer.BYTES);
+    private ByteBuffer lineCounts = column(INITIAL_ORDERS, Integer.BYTES);
+    private int orderCapacity = INITIAL_ORDERS;
+    private int orders;
+
+    // line columns
+    private ByteBuffer kinds = column(INITIAL_LINES, Byte.BYTES);
+    private ByteBuffer codes = column(INITIAL_LINES, Short.BYTES);
+    private ByteBuffer quantities = column(INITIAL_LINES, Integer.BYTES);
+    private ByteBuffer cents = column(INITIAL_LINES, Long.BYTES);
+    private int lineCapacity = INITIAL_LINES;
+    private int lines;
+
+    private final IntIntHashMap rows = new IntIntHashMap(INITIAL_ORDERS);
+    private long revenueCents;
+
+    /**
+     * Archives an order. The order is copied; it can be dropped afterwards.
+     *
+     * @param order placed order
+     * @return true if archived, false if an order with the same number is already archived
+     */
+    public synchronized boolean add(Order order) {
+        int number = order.getOrderNumber();
+        if (rows.get(number) != IntIntHashMap.MISSING) {
+            return false;
+        }
+        int count = order.size();
+        ensureOrders(orders + 1);
+        ensureLines(lines + count);
+        numbers.putInt(orders * Integer.BYTES, number);
+        placedAts.putLong(orders * Long.BYTES, order.getPlacedAt());
+        subtotals.putLong(orders * Long.BYTES, order.getSubtotalCents());
+        firstLines.putInt(orders * Integer.BYTES, lines);
+        lineCounts.putInt(orders * Integer.BYTES, count);
+        for (MenuItem item : order.getItems()) {
+            ItemConfig config = item.getConfig();
+            kinds.put(lines, (byte) config.kind());
+            codes.putShort(lines * Short.BYTES, (short) config.code());
+            quantities.putInt(lines * Integer.BYTES, item.getQuantity());
+            cents.putLong(lines * Long.BYTES, item.priceCents());
+            lines++;
+        }
+        rows.put(number, orders++);
+        revenueCents += order.getSubtotalCents();
+        return true;
+    }
+
+    /**
+     * Gets the number of archived orders.
+     *
+     * @return order count
+     */
+    public synchronized int size() {
+        return orders;
+    }
+
+    /**
+     * Gets the number of archived order lines.
+     *
+     * @return line count
+     */
+    public synchronized int lineCount() {
+        return lines;
+    }
+
+    /**
+     * Gets the combined subtotal of all archived orders.
+     *
+     * @return revenue in cents
+     */
+    public synchronized long getRevenueCents() {
+        return revenueCents;
+    }
+
+    /**
+     * Checks whether an order is archived.
+     *
+     * @param orderNumber order number
+     * @return true if archived
+     */
+    public synchronized boolean contains(int orderNumber) {
+        return rows.get(orderNumber) != IntIntHashMap.MISSING;
+    }
+
+    /**
+     * Gets the subtotal of an archived order without restoring it.
+     *
+     * @param orderNumber order number
+     * @return subtotal in cents, or -1 if the order is not archived
+     */
+    public synchronized long getSubtotalCents(int orderNumber) {
+        int row = rows.get(orderNumber);
+        return row == IntIntHashMap.MISSING ? -1 : subtotals.getLong(row * Long.BYTES);
+    }
+
+    /**
+     * Rebuilds an archived order as a read-only {@link Order}.
+     *
+     * @param orderNumber order number
+     * @return a new order equal to the archived one, or null if it is not archived
+     */
+    public synchronized Order restore(int orderNumber) {
+        int row = rows.get(orderNumber);
+        if (row == IntIntHashMap.MISSING) {
+            return null;
+        }
+        Order order = new Order(orderNumber);
+        order.setPlacedAt(placedAts.getLong(row * Long.BYTES));
+        int first = firstLines.getInt(row * Integer.BYTES);
+        int end = first + lineCounts.getInt(row * Integer.BYTES);
+        for (int line = first; line < end; line++) {
+            int quantity = quantities.getInt(line * Integer.BYTES);
+            MenuItem item = config(line).newItem(quantity);
+            if (quantity != 0) {
+                // keep the price the order was sold at, even if prices changed since
+                item.setUnitCents(cents.getLong(line * Long.BYTES) / quantity);
+            }
+            order.add(item);
+        }
+        return order;
+    }
+
+    /**
+     * Visits every archived order.
+     *
+     * @param visitor receives each order
+     */
+    public synchronized void forEachOrder(OrderVisitor visitor) {
+        for (int row = 0; row < orders; row++) {
+            visitor.order(numbers.getInt(row * Integer.BYTES), placedAts.getLong(row * Long.BYTES),
+                    lineCounts.getInt(row * Integer.BYTES), subtotals.getLong(row * Long.BYTES));
+        }
+    }
+
+    /**
+     * Visits every line of every archived order.
+     *
+     * @param visitor receives each line
+     */
+    public synchronized void forEachLine(LineVisitor visitor) {
+        for (int row = 0; row < orders; row++) {
+            int number = numbers.getInt(row * Integer.BYTES);
+            long placedAt = placedAts.getLong(row * Long.BYTES);
+            int first = firstLines.getInt(row * Integer.BYTES);
+            int end = first + lineCounts.getInt(row * Integer.BYTES);
+            for (int line = first; line < end; line++) {
+                visitor.line(number, placedAt, config(line),
+                        quantities.getInt(line * Integer.BYTES), cents.getLong(line * Long.BYTES));
+            }
+        }
+    }
+
+    /**
+     * Sums the subtotals of archived orders placed in a time range, reading only the
+     * time and subtotal columns.
+     *
+     * @param fromMillis start of the range, inclusive
+     * @param toMillis   end of the range, exclusive
+     * @return revenue in cents
+     */
+    public synchronized long getRevenueCents(long fromMillis, long toMillis) {
+        long sum = 0;
+        for (int row = 0; row < orders; row++) {
+            long placedAt = placedAts.getLong(row * Long.BYTES);
+            if (placedAt >= fromMillis && placedAt < toMillis) {
+                sum += subtotals.getLong(row * Long.BYTES);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the quantity sold of one configuration, reading only the line columns.
+     *
+     * @param config item configuration
+     * @return units sold
+     */
+    public synchronized long getUnits(ItemConfig config) {
+        byte kind = (byte) config.kind();
+        short code = (short) config.code();
+        long units = 0;
+        for (int line = 0; line < lines; line++) {
+            if (kinds.get(line) == kind && codes.getShort(line * Short.BYTES) == code) {
+                units += quantities.getInt(line * Integer.BYTES);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Writes every archived order to a channel, followed by a CRC32 of everything
+     * written.
+     *
+     * @param out channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    synchronized void writeTo(WritableByteChannel out) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(4 * Integer.BYTES);
+        header.putInt(MAGIC).putInt(FORMAT).putInt(orders).putInt(lines).flip();
+        write(out, header, crc);
+        for (ByteBuffer column : orderColumns()) {
+            write(out, column.slice(0, orders * (column.capacity() / orderCapacity)), crc);
+        }
+        for (ByteBuffer column : lineColumns()) {
+            write(out, column.slice(0, lines * (column.capacity() / lineCapacity)), crc);
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip();
+        write(out, trailer, null);
+    }
+
+    /**
+     * Loads orders written by {@link #writeTo(WritableByteChannel)} into this archive,
+     * which must be empty.
+     *
+     * @param in channel to read from
+     * @throws IOException           if the channel cannot be read or does not hold a
+     *                               complete, intact archive; the archive stays empty
+     * @throws IllegalStateException if the archive is not empty
+     */
+    synchronized void readFrom(ReadableByteChannel in) throws IOException {
+        if (orders != 0) {
+            throw new IllegalStateException("archive is not empty");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer header = read(in, 4 * Integer.BYTES, crc);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+            throw new IOException("not a saved order archive");
+        }
+        int savedOrders = header.getInt();
+        int savedLines = header.getInt();
+        if (savedOrders < 0 || savedLines < 0) {
+            throw new IOException("corrupt order archive");
+        }
+        ensureOrders(savedOrders);
+        ensureLines(savedLines);
+        for (ByteBuffer column : orderColumns()) {
+            column.put(0, read(in, savedOrders * (column.capacity() / orderCapacity), crc), 0,
+                    savedOrders * (column.capacity() / orderCapacity));
+        }
+        for (ByteBuffer column : lineColumns()) {
+            column.put(0, read(in, savedLines * (column.capacity() / lineCapacity), crc), 0,
+                    savedLines * (column.capacity() / lineCapacity));
+        }
+        if (read(in, Integer.BYTES, null).getInt() != (int) crc.getValue()) {
+            throw new IOException("order archive fails its checksum");
+        }
+        for (int row = 0; row < savedOrders; row++) {
+            rows.put(numbers.getInt(row * Integer.BYTES), row);
+            revenueCents += subtotals.getLong(row * Long.BYTES);
+        }
+        orders = savedOrders;
+        lines = savedLines;
+    }
+
+    private ByteBuffer[] orderColumns() {
+        return new ByteBuffer[]{numbers, placedAts, subtotals, firstLines, lineCounts};
+    }
+
+    private ByteBuffer[] lineColumns() {
+        return new ByteBuffer[]{kinds, codes, quantities, cents};
+    }
+
+    private static void write(WritableByteChannel out, ByteBuffer bytes, CRC32 crc) throws IOException {
+        if (crc != null) {
+            crc.update(bytes.duplicate());
+        }
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ByteBuffer read(ReadableByteChannel in, int length, CRC32 crc) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (in.read(bytes) < 0) {
+                throw new IOException("order archive is cut short");
+            }
+        }
+        bytes.flip();
+        if (crc != null) {
+            crc.update(bytes.duplicate());
+        }
+        return bytes;
+    }
+
+    private ItemConfig config(int line) {
+        return ItemConfig.of(kinds.get(line), codes.getShort(line * Short.BYTES));
+    }
+
+    private void ensureOrders(int needed) {
+        if (needed <= orderCapacity) {
+            return;
+        }
+        int capacity = grow(orderCapacity, needed);
+        numbers = resize(numbers, capacity, Integer.BYTES);
+        placedAts = resize(placedAts, capacity, Long.BYTES);
+        subtotals = resize(subtotals, capacity, Long.BYTES);
+        firstLines = resize(firstLines, capacity, Integer.BYTES);
+        lineCounts = resize(lineCounts, capacity, Integer.BYTES);
+        orderCapacity = capacity;
+    }
+
+    private void ensureLines(int needed) {
+        if (needed <= lineCapacity) {
+            return;
+        }
+        int capacity = grow(lineCapacity, needed);
+        kinds = resize(kinds, capacity, Byte.BYTES);
+        codes = resize(codes, capacity, Short.BYTES);
+        quantities = resize(quantities, capacity, Integer.BYTES);
+        cents = resize(cents, capacity, Long.BYTES);
+        lineCapacity = capacity;
+    }
+
+    private static int grow(int capacity, int needed) {
+        // widest column is 8 bytes, so stay below Integer.MAX_VALUE / 8 elements
+        int max = Integer.MAX_VALUE / Long.BYTES;
+        if (needed > max) {
+            throw new IllegalStateException("order archive is full");
+        }
+        return (int) Math.min(max, Math.max(needed, (long) capacity << 1));
+    }
+
+    private static ByteBuffer column(int capacity, int width) {
+        return ByteBuffer.allocateDirect(capacity * width);
+    }
+
+    private static ByteBuffer resize(ByteBuffer old, int capacity, int width) {
+        ByteBuffer column = column(capacity, width);
+        column.put(0, old, 0, old.capacity());
+        return column;
+    }
+}
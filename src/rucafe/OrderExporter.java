@@ -0,0 +1,109 @@
+package rucafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams orders to a file through a buffered NIO channel. Each order is formatted
+ * into a reused {@link StringBuilder}, encoded as UTF-8 into a reused direct buffer,
+ * and written to the channel whenever the buffer fills.
+ */
+final class OrderExporter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ExportFormat format;
+    private final StringBuilder text = new StringBuilder(1024);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private char[] chars = new char[1024];
+    private CharBuffer charView = CharBuffer.wrap(chars);
+
+    /**
+     * Opens (creating or truncating) the target file and writes the format header.
+     *
+     * @param path   target file
+     * @param format output format
+     * @throws IOException if the file cannot be opened or written
+     */
+    OrderExporter(Path path, ExportFormat format) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.format = format;
+        format.appendHeader(text);
+        drainText();
+    }
+
+    /**
+     * Formats and buffers one order.
+     *
+     * @param order order to write
+     * @throws IOException if an I/O error occurs
+     */
+    void write(Order order) throws IOException {
+        format.appendOrder(text, order);
+        drainText();
+    }
+
+    /**
+     * Flushes any buffered output and closes the file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBytes();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes the pending text into the byte buffer, writing out full buffers as needed.
+     */
+    private void drainText() throws IOException {
+        int length = text.length();
+        if (length == 0) {
+            return;
+        }
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length << 1)];
+            charView = CharBuffer.wrap(chars);
+        }
+        text.getChars(0, length, chars, 0);
+        text.setLength(0);
+        charView.clear().limit(length);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(charView, bytes, true);
+            if (result.isOverflow()) {
+                flushBytes();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            flushBytes();
+        }
+    }
+
+    private void flushBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,612 @@
+package rucafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of placed and cancelled orders.
+ *
+ * The journal is a directory of fixed-size segment files that are memory-mapped and
+ * filled with length-prefixed, CRC-checked records. Appends from concurrent threads
+ * are group-committed: whichever caller syncs first forces every record written so
+ * far, and callers whose records were covered by that force return without syncing.
+ * Order lines are stored in the compact {@link ItemCodec} encoding.
+ * On open, all segments are replayed in order and a torn tail, a record that is cut
+ * short or fails its checksum, is discarded. A record that passes its checksum but
+ * cannot be decoded, for example one naming a configuration the menu no longer has,
+ * is reported to {@link Visitor#skipped(int, long, RuntimeException)} and left in
+ * place, and replay carries on after it.
+ *
+ * Each segment holds the records of one business day: an append stamped with a
+ * different local day than the records already in the segment rolls to a new one.
+ * Once the orders of past days have been moved into the {@link OrderArchive},
+ * {@link #checkpoint(OrderArchive, long)} saves the archive next to the segments and
+ * deletes the segments it covers. {@link #open(Path, int, OrderArchive, Visitor)}
+ * loads the saved archive before replaying what is left, so the journal only grows
+ * with the days that have not been archived yet.
+ *
+ * Only one journal can be open on a directory at a time: opening takes an exclusive
+ * lock on a lock file in the directory, so a second process, such as a headless API
+ * server started next to the register, fails instead of appending to the same
+ * segments.
+ */
+final class OrderJournal implements Closeable {
+
+    /**
+     * Receives journal records during replay.
+     */
+    interface Visitor {
+
+        /**
+         * Called for each placed order, in journal order.
+         *
+         * @param order     order as it was placed
+         * @param timestamp epoch millis when the order was placed
+         */
+        void placed(Order order, long timestamp);
+
+        /**
+         * Called for each cancelled order, in journal order.
+         *
+         * @param orderNumber number of the cancelled order
+         * @param timestamp   epoch millis when the record was written
+         */
+        void cancelled(int orderNumber, long timestamp);
+
+        /**
+         * Called for each intact record that cannot be decoded, in journal order. The
+         * record stays in the journal.
+         *
+         * @param orderNumber number of the order the record is for
+         * @param timestamp   epoch millis when the record was written
+         * @param cause       why the record could not be decoded
+         */
+        default void skipped(int orderNumber, long timestamp, RuntimeException cause) {
+        }
+    }
+
+    /**
+     * Thrown when the journal directory is already open, in this or another process.
+     */
+    static final class LockedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LockedException(String message) {
+            super(message);
+        }
+    }
+
+    static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final String CHECKPOINT = "archive.dat";
+    private static final String CHECKPOINT_TEMP = "archive.dat.tmp";
+    /** Day of a segment with no records yet. */
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    private static final byte CANCELLED = 2;
+    /** Placed order with items in {@link ItemCodec} format. */
+    private static final byte PLACED = 3;
+
+    /** Length and CRC32 of the payload. */
+    private static final int HEADER = 8;
+    /** Record type, timestamp, order number, and item count. */
+    private static final int FIXED_PAYLOAD = 1 + 8 + 4 + 4;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final CRC32 crc = new CRC32();
+    private FileChannel lockChannel;
+
+    // guarded by this
+    private MappedByteBuffer segment;
+    private FileChannel channel;
+    private int segmentIndex;
+    private long segmentDay = NO_DAY;
+    /** Latest record timestamp of the current segment. */
+    private long segmentLatest = Long.MIN_VALUE;
+    /** Latest record timestamp of each earlier segment still on disk, by index. */
+    private final Map<Integer, Long> closedSegments = new TreeMap<>();
+    private long written;
+
+    // guarded by syncLock
+    private final Object syncLock = new Object();
+    private long durable;
+    private boolean syncing;
+
+    private OrderJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in the given directory, creating it if needed, and replays every
+     * intact record to the visitor before returning. A saved archive is ignored.
+     *
+     * @param directory   journal directory
+     * @param segmentSize size of each segment file in bytes
+     * @param visitor     receives replayed records
+     * @return the open journal, positioned after the last intact record
+     * @throws LockedException if the journal is already open
+     * @throws IOException     if the journal cannot be read or created
+     */
+    static OrderJournal open(Path directory, int segmentSize, Visitor visitor) throws IOException {
+        return open(directory, segmentSize, null, visitor);
+    }
+
+    /**
+     * Opens the journal in the given directory, creating it if needed, loads the archive
+     * saved by the last {@link #checkpoint(OrderArchive, long)}, and then replays every
+     * intact record to the visitor before returning. Records of orders that were
+     * archived but whose segments had not been deleted yet are replayed as well.
+     *
+     * @param directory   journal directory
+     * @param segmentSize size of each segment file in bytes
+     * @param archive     empty archive that receives the saved orders, or null to
+     *                    ignore them
+     * @param visitor     receives replayed records
+     * @return the open journal, positioned after the last intact record
+     * @throws LockedException if the journal is already open
+     * @throws IOException     if the journal or the saved archive cannot be read, or the
+     *                         journal cannot be created
+     */
+    static OrderJournal open(Path directory, int segmentSize, OrderArchive archive, Visitor visitor)
+            throws IOException {
+        Files.createDirectories(directory);
+        OrderJournal journal = new OrderJournal(directory, segmentSize);
+        journal.lock();
+        try {
+            if (archive != null) {
+                journal.loadCheckpoint(archive);
+            }
+            journal.recover(visitor);
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Takes the exclusive lock on the journal directory, held until {@link #close()}.
+     */
+    private void lock() throws IOException {
+        FileChannel lockFile = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockFile.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // already held by this process
+            lock = null;
+        } catch (IOException e) {
+            lockFile.close();
+            throw e;
+        }
+        if (lock == null) {
+            lockFile.close();
+            throw new LockedException("journal " + directory + " is already open");
+        }
+        lockChannel = lockFile;
+    }
+
+    /**
+     * Loads the saved archive, if there is one.
+     */
+    private void loadCheckpoint(OrderArchive archive) throws IOException {
+        Path path = directory.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            archive.readFrom(in);
+        }
+    }
+
+    /**
+     * Saves the archive next to the segments, replacing the last saved one, and then
+     * deletes every segment other than the current one whose records are all older
+     * than {@code before}. The caller must make sure the orders of those records are in
+     * the archive; nothing is deleted if the archive cannot be saved.
+     *
+     * @param archive archive holding every order of the segments to delete
+     * @param before  epoch millis; segments with a record at or after it are kept
+     * @return number of segments deleted
+     * @throws IOException if the archive cannot be saved or a segment cannot be deleted
+     */
+    int checkpoint(OrderArchive archive, long before) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_TEMP);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            archive.writeTo(out);
+            out.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        List<Integer> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Integer, Long> entry : closedSegments.entrySet()) {
+                if (entry.getValue() < before) {
+                    expired.add(entry.getKey());
+                }
+            }
+            closedSegments.keySet().removeAll(expired);
+        }
+        for (int index : expired) {
+            Files.deleteIfExists(segmentPath(index));
+        }
+        return expired.size();
+    }
+
+    /**
+     * Durably records a placed order, stamped with its placement time. Returns once the record has been forced to disk.
+     *
+     * @param order order being placed
+     * @throws IOException if the record cannot be written or synced
+     */
+    void appendPlaced(Order order) throws IOException {
+        long seq;
+        synchronized (this) {
+            seq = writePlaced(order);
+        }
+        sync(seq);
+    }
+
+    /**
+     * Durably records a batch of placed orders with a single sync. The records are
+     * written back to back, so no other record is interleaved with the batch.
+     * The batch is all or nothing: every record is checked to fit in a segment before
+     * any is written, and if writing still fails part way, the records already written
+     * are zeroed so none of the batch is replayed.
+     *
+     * @param orders orders being placed, in order
+     * @throws IOException if the records cannot be written or synced
+     */
+    void appendPlaced(List<Order> orders) throws IOException {
+        if (orders.isEmpty()) {
+            return;
+        }
+        long seq = 0;
+        synchronized (this) {
+            for (Order order : orders) {
+                checkFits(placedBytes(order));
+            }
+            List<MappedByteBuffer> touched = new ArrayList<>(2);
+            touched.add(segment);
+            int first = segment.position();
+            try {
+                for (Order order : orders) {
+                    seq = writePlaced(order);
+                    if (segment != touched.get(touched.size() - 1)) {
+                        touched.add(segment);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                discard(touched, first);
+                throw e;
+            }
+        }
+        sync(seq);
+    }
+
+    /**
+     * Zeroes the records of a failed batch, which starts at {@code first} in the first
+     * of the touched segments and ends at the current position in the last, and forces
+     * the zeros so a crash cannot bring the batch back. Appending resumes where the
+     * batch started.
+     */
+    private void discard(List<MappedByteBuffer> touched, int first) {
+        byte[] zeros = new byte[4096];
+        for (int i = 0; i < touched.size(); i++) {
+            MappedByteBuffer buffer = touched.get(i);
+            int from = i == 0 ? first : 0;
+            int to = buffer == segment ? segment.position() : segmentSize;
+            for (int p = from; p < to; p += zeros.length) {
+                buffer.put(p, zeros, 0, Math.min(zeros.length, to - p));
+            }
+            buffer.force();
+        }
+        segment.position(touched.size() == 1 ? first : 0);
+    }
+
+    /**
+     * Durably records a cancelled order. Returns once the record has been forced to disk.
+     *
+     * @param orderNumber number of the cancelled order
+     * @throws IOException if the record cannot be written or synced
+     */
+    void appendCancelled(int orderNumber) throws IOException {
+        long seq;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            int start = reserve(HEADER + FIXED_PAYLOAD, now);
+            segment.position(start + HEADER);
+            segment.put(CANCELLED).putLong(now).putInt(orderNumber).putInt(0);
+            seq = commit(start);
+        }
+        sync(seq);
+    }
+
+    /**
+     * Forces outstanding records, closes the current segment, and releases the lock on
+     * the journal directory.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (channel != null) {
+                segment.force();
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            if (lockChannel != null) {
+                // closing the channel releases the lock
+                lockChannel.close();
+                lockChannel = null;
+            }
+        }
+    }
+
+    /**
+     * Writes one placed-order record, stamped with the order's placement time.
+     * Callers hold the lock on this journal.
+     *
+     * @return sequence number of the record for group commit
+     */
+    private long writePlaced(Order order) throws IOException {
+        List<MenuItem> items = order.getItems();
+        int start = reserve(placedBytes(order), order.getPlacedAt());
+        segment.position(start + HEADER);
+        segment.put(PLACED).putLong(order.getPlacedAt()).putInt(order.getOrderNumber());
+        segment.putInt(items.size());
+        try {
+            for (MenuItem item : items) {
+                ItemCodec.writeItem(segment, item);
+            }
+        } catch (IllegalArgumentException e) {
+            // leave no partial record behind; the next record is written over it
+            int end = segment.position();
+            for (int p = start + HEADER; p < end; p++) {
+                segment.put(p, (byte) 0);
+            }
+            segment.position(start);
+            throw e;
+        }
+        return commit(start);
+    }
+
+    /**
+     * Gets the most bytes the record of a placed order can take.
+     */
+    private static int placedBytes(Order order) {
+        return HEADER + FIXED_PAYLOAD + order.size() * ItemCodec.MAX_ITEM_BYTES;
+    }
+
+    /**
+     * Checks that a record of at most {@code maxBytes} can be appended at all.
+     */
+    private void checkFits(int maxBytes) throws IOException {
+        if (channel == null) {
+            throw new IOException("journal is closed");
+        }
+        if (maxBytes > segmentSize - Integer.BYTES) {
+            throw new IOException("record of " + maxBytes + " bytes exceeds segment size " + segmentSize);
+        }
+    }
+
+    /**
+     * Makes room for a record of at most {@code maxBytes} stamped with
+     * {@code timestamp}, rolling to a new segment if the current one is too full or
+     * holds the records of another day.
+     *
+     * @return offset of the record in the current segment
+     */
+    private int reserve(int maxBytes, long timestamp) throws IOException {
+        checkFits(maxBytes);
+        long day = day(timestamp);
+        // keep room for the zero length that marks the end of a segment
+        if (segment.position() + maxBytes > segmentSize - Integer.BYTES
+                || segment.position() > 0 && day != segmentDay) {
+            segment.force();
+            channel.close();
+            closedSegments.put(segmentIndex, segmentLatest);
+            openSegment(segmentIndex + 1, true);
+        }
+        segmentDay = day;
+        segmentLatest = Math.max(segmentLatest, timestamp);
+        return segment.position();
+    }
+
+    private long day(long timestamp) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone).toEpochDay();
+    }
+
+    /**
+     * Fills in the header of the record that starts at {@code start} and ends at the
+     * current position.
+     *
+     * @return sequence number of the record for group commit
+     */
+    private long commit(int start) {
+        int end = segment.position();
+        int length = end - start - HEADER;
+        crc.reset();
+        crc.update(segment.slice(start + HEADER, length));
+        segment.putInt(start, length);
+        segment.putInt(start + Integer.BYTES, (int) crc.getValue());
+        return ++written;
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk. The first
+     * caller to find no sync in progress forces every record written so far.
+     */
+    private void sync(long seq) throws IOException {
+        synchronized (syncLock) {
+            while (durable < seq && syncing) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for journal sync", e);
+                }
+            }
+            if (durable >= seq) {
+                return;
+            }
+            syncing = true;
+        }
+        long target = seq;
+        boolean forced = false;
+        try {
+            MappedByteBuffer toForce;
+            synchronized (this) {
+                target = written;
+                toForce = segment;
+            }
+            toForce.force();
+            forced = true;
+        } finally {
+            synchronized (syncLock) {
+                if (forced) {
+                    durable = Math.max(durable, target);
+                }
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Replays every segment in order and leaves the journal positioned for appending
+     * after the last intact record.
+     */
+    private synchronized void recover(Visitor visitor) throws IOException {
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1, true);
+            return;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            int index = segmentIndex(segments.get(i));
+            boolean last = i == segments.size() - 1;
+            openSegment(index, false);
+            int end = replay(segment, visitor);
+            if (last) {
+                // discard a torn tail so later appends are not followed by stale bytes
+                byte[] zeros = new byte[4096];
+                for (int p = end; p < segmentSize; p += zeros.length) {
+                    segment.put(p, zeros, 0, Math.min(zeros.length, segmentSize - p));
+                }
+                segment.position(end);
+                segmentDay = end == 0 ? NO_DAY : day(segmentLatest);
+            } else {
+                channel.close();
+                closedSegments.put(index, segmentLatest);
+            }
+        }
+    }
+
+    /**
+     * Replays the intact records of one segment, skipping those that cannot be decoded,
+     * and leaves the latest record timestamp in {@code segmentLatest}.
+     *
+     * @return offset just past the last intact record
+     */
+    private int replay(ByteBuffer buffer, Visitor visitor) {
+        int position = 0;
+        segmentLatest = Long.MIN_VALUE;
+        while (position + HEADER <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length < FIXED_PAYLOAD || position + HEADER + length > segmentSize) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + HEADER, length));
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            ByteBuffer record = buffer.slice(position + HEADER, length);
+            byte type = record.get();
+            long timestamp = record.getLong();
+            int orderNumber = record.getInt();
+            int count = record.getInt();
+            position += HEADER + length;
+            segmentLatest = Math.max(segmentLatest, timestamp);
+            if (type == PLACED) {
+                Order order;
+                try {
+                    order = new Order(orderNumber);
+                    order.setPlacedAt(timestamp);
+                    for (int i = 0; i < count; i++) {
+                        order.add(ItemCodec.readItem(record));
+                    }
+                } catch (RuntimeException e) {
+                    // intact but undecodable: the records after it are still good
+                    visitor.skipped(orderNumber, timestamp, e);
+                    continue;
+                }
+                visitor.placed(order, timestamp);
+            } else if (type == CANCELLED) {
+                visitor.cancelled(orderNumber, timestamp);
+            }
+        }
+        return position;
+    }
+
+    private void openSegment(int index, boolean create) throws IOException {
+        Path path = segmentPath(index);
+        channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+        segmentDay = NO_DAY;
+        segmentLatest = Long.MIN_VALUE;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%06d%s", PREFIX, index, SUFFIX));
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,54 @@
+package rucafe;
+
+/**
+ * Where an order is in its life, from being built to being picked up.
+ * An order only moves forward: placed, in progress, ready, picked up. It can be
+ * cancelled at any point once placed.
+ */
+public enum OrderStatus {
+    /** Still being built; not placed yet. */
+    NEW,
+    /** Placed and waiting for the kitchen. */
+    PLACED,
+    /** Being prepared. */
+    IN_PROGRESS,
+    /** Prepared and waiting to be picked up. */
+    READY,
+    /** Handed to the customer. */
+    PICKED_UP,
+    /** Cancelled after it was placed. */
+    CANCELLED;
+
+    /**
+     * Checks whether an order in this state may move to another state.
+     *
+     * @param next state to move to
+     * @return true if the move is allowed
+     */
+    public boolean canAdvanceTo(OrderStatus next) {
+        switch (next) {
+            case PLACED:
+                return this == NEW;
+            case IN_PROGRESS:
+                return this == PLACED;
+            case READY:
+                // an order can be marked ready without passing through the kitchen
+                return this == PLACED || this == IN_PROGRESS;
+            case PICKED_UP:
+                return this == READY;
+            case CANCELLED:
+                return this != NEW && this != CANCELLED;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether an order in this state is still open, placed but not yet ready.
+     *
+     * @return true if placed or in progress
+     */
+    public boolean isOpen() {
+        return this == PLACED || this == IN_PROGRESS;
+    }
+}
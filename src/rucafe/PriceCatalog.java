@@ -0,0 +1,211 @@
+package rucafe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * The cafe's price list: the single source of unit prices for menu items, price
+ * previews, and order totals.
+ *
+ * Prices are read from a versioned properties file, {@code prices.properties} next to
+ * this class unless the {@value #PRICES_FILE_PROPERTY} system property names another
+ * file. Loading precomputes a flat table of unit prices per item kind, indexed by
+ * configuration code, so a price lookup is a volatile read and two array loads.
+ *
+ * A catalog is immutable. {@link #reload()} parses the file into a new catalog and
+ * swaps it in atomically, so readers never block and never see a half-loaded price
+ * list. Items keep the unit price they were created with, so orders already built
+ * are not repriced by a reload.
+ *
+ * @see ItemConfig#getUnitCents()
+ */
+public final class PriceCatalog {
+
+    /** System property naming a price file to use instead of the built-in one. */
+    public static final String PRICES_FILE_PROPERTY = "rucafe.prices.file";
+
+    private static final String RESOURCE = "prices.properties";
+
+    private static volatile PriceCatalog current = loadDefault();
+
+    private final int version;
+
+    /** Unit prices in cents, indexed by kind tag and then configuration code. */
+    private final long[][] unitCents;
+
+    private PriceCatalog(int version, long[][] unitCents) {
+        this.version = version;
+        this.unitCents = unitCents;
+    }
+
+    /**
+     * Gets the catalog in use.
+     *
+     * @return current catalog
+     */
+    public static PriceCatalog current() {
+        return current;
+    }
+
+    /**
+     * Gets the version of this catalog's price file.
+     *
+     * @return price list version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the unit price of a configuration.
+     *
+     * @param config item configuration
+     * @return price of a single unit in cents
+     */
+    public long getUnitCents(ItemConfig config) {
+        return unitCents[config.kind()][config.code()];
+    }
+
+    /**
+     * Reads the price file again and puts it in use if its version is newer than the
+     * current one. On any error the current catalog stays in use.
+     *
+     * @return true if the new prices are now in use, false if the file is not newer
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid price list
+     */
+    public static boolean reload() throws IOException {
+        return install(readSource());
+    }
+
+    /**
+     * Puts a catalog in use if its version is newer than the current one.
+     *
+     * @param catalog catalog to use
+     * @return true if installed, false if it is not newer
+     */
+    public static synchronized boolean install(PriceCatalog catalog) {
+        if (catalog.version <= current.version) {
+            return false;
+        }
+        current = catalog;
+        return true;
+    }
+
+    /**
+     * Parses a price list.
+     *
+     * @param in price list in properties format, UTF-8
+     * @return a new catalog, not yet in use
+     * @throws IOException              if the stream cannot be read
+     * @throws IllegalArgumentException if a price or the version is missing or invalid
+     */
+    public static PriceCatalog parse(InputStream in) throws IOException {
+        Properties props = new Properties();
+        props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        int version;
+        try {
+            version = Integer.parseInt(required(props, "version"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price list version \"" + props.getProperty("version") + "\"");
+        }
+
+        long[] types = new long[DonutType.values().length];
+        for (DonutType type : DonutType.values()) {
+            types[type.ordinal()] = cents(props, "donut." + type.name());
+        }
+        long[] sizes = new long[CupSize.values().length];
+        for (CupSize size : CupSize.values()) {
+            sizes[size.ordinal()] = cents(props, "coffee.size." + size.name());
+        }
+        long[] addIns = new long[CoffeeAddIn.values().length];
+        for (CoffeeAddIn addIn : CoffeeAddIn.values()) {
+            addIns[addIn.ordinal()] = cents(props, "coffee.addIn." + addIn.name());
+        }
+        long[] proteins = new long[Protein.values().length];
+        for (Protein protein : Protein.values()) {
+            proteins[protein.ordinal()] = cents(props, "sandwich.protein." + protein.name());
+        }
+        long[] extras = new long[SandwichExtra.values().length];
+        for (SandwichExtra extra : SandwichExtra.values()) {
+            extras[extra.ordinal()] = cents(props, "sandwich.extra." + extra.name());
+        }
+
+        long[][] unitCents = new long[3][];
+        long[] donut = unitCents[ItemConfig.DONUT] = new long[DonutConfig.count()];
+        for (int code = 0; code < donut.length; code++) {
+            donut[code] = types[DonutConfig.byCode(code).getType().ordinal()];
+        }
+        long[] coffee = unitCents[ItemConfig.COFFEE] = new long[CoffeeConfig.count()];
+        for (int code = 0; code < coffee.length; code++) {
+            CoffeeConfig config = CoffeeConfig.byCode(code);
+            long cents = sizes[config.getSize().ordinal()];
+            for (CoffeeAddIn addIn : config.getAddIns()) {
+                cents += addIns[addIn.ordinal()];
+            }
+            coffee[code] = cents;
+        }
+        long[] sandwich = unitCents[ItemConfig.SANDWICH] = new long[SandwichConfig.count()];
+        for (int code = 0; code < sandwich.length; code++) {
+            SandwichConfig config = SandwichConfig.byCode(code);
+            long cents = proteins[config.getProtein().ordinal()];
+            for (SandwichExtra extra : config.getExtras()) {
+                cents += extras[extra.ordinal()];
+            }
+            sandwich[code] = cents;
+        }
+        return new PriceCatalog(version, unitCents);
+    }
+
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing \"" + key + "\" in price list");
+        }
+        return value.trim();
+    }
+
+    private static long cents(Properties props, String key) {
+        String value = required(props, key);
+        try {
+            long cents = new BigDecimal(value).movePointRight(2).longValueExact();
+            if (cents >= 0) {
+                return cents;
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid price \"" + value + "\" for " + key);
+    }
+
+    private static PriceCatalog readSource() throws IOException {
+        String file = System.getProperty(PRICES_FILE_PROPERTY);
+        if (file != null) {
+            try (InputStream in = Files.newInputStream(Paths.get(file))) {
+                return parse(in);
+            }
+        }
+        try (InputStream in = PriceCatalog.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Price list " + RESOURCE + " not found");
+            }
+            return parse(in);
+        }
+    }
+
+    private static PriceCatalog loadDefault() {
+        try {
+            return readSource();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the price list", e);
+        }
+    }
+}
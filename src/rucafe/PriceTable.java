@@ -0,0 +1,59 @@
+package rucafe;
+
+/**
+ * Sales tax and formatting for amounts in cents. Keeping every amount in whole cents
+ * means totals are exact and never pick up floating-point rounding drift.
+ * Unit prices come from the {@link PriceCatalog}.
+ *
+ * @see MenuItem#priceCents()
+ */
+public final class PriceTable {
+
+    /** Sales tax rate in parts per 100,000 (6.625% NJ sales tax). */
+    private static final long TAX_RATE_PER_100K = 6625;
+    private static final long TAX_SCALE = 100_000;
+
+    private PriceTable() {
+    }
+
+    /**
+     * Computes sales tax on a subtotal, rounded half-up to the nearest cent.
+     *
+     * @param subtotalCents subtotal in cents
+     * @return tax in cents
+     */
+    public static long tax(long subtotalCents) {
+        return (subtotalCents * TAX_RATE_PER_100K + TAX_SCALE / 2) / TAX_SCALE;
+    }
+
+    /**
+     * Formats an amount in cents as dollars with two decimals, e.g. {@code 1234 -> "12.34"}.
+     *
+     * @param cents amount in cents
+     * @return formatted amount without a currency sign
+     */
+    public static String format(long cents) {
+        return appendCents(new StringBuilder(12), cents).toString();
+    }
+
+    /**
+     * Appends an amount in cents as dollars with two decimals, without going through
+     * {@link String#format}.
+     *
+     * @param sb    builder to append to
+     * @param cents amount in cents
+     * @return the same builder
+     */
+    public static StringBuilder appendCents(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
@@ -0,0 +1,229 @@
+package rucafe;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Running sales figures, updated as orders are placed and cancelled so that reading
+ * any figure is O(1) instead of a walk over every stored order.
+ *
+ * Units sold and revenue are kept per {@link DonutType}, {@link CupSize}, and
+ * {@link Protein}, along with overall order count and revenue, and per clock hour for
+ * the most recent {@link #HOURS} hours. Revenue is the pre-tax subtotal in cents.
+ * Recording an order is O(items).
+ *
+ * This class is thread-safe. Category counters are atomic; the hourly buckets share
+ * one lock that is held only for a few array updates.
+ */
+public class SalesRollup {
+
+    /** Number of hourly buckets kept, one week. */
+    public static final int HOURS = 24 * 7;
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong revenue = new AtomicLong();
+    private final AtomicLongArray donutUnits = new AtomicLongArray(DonutType.values().length);
+    private final AtomicLongArray donutRevenue = new AtomicLongArray(DonutType.values().length);
+    private final AtomicLongArray coffeeUnits = new AtomicLongArray(CupSize.values().length);
+    private final AtomicLongArray coffeeRevenue = new AtomicLongArray(CupSize.values().length);
+    private final AtomicLongArray sandwichUnits = new AtomicLongArray(Protein.values().length);
+    private final AtomicLongArray sandwichRevenue = new AtomicLongArray(Protein.values().length);
+
+    // guarded by hourLock; slot is epochHour mod HOURS
+    private final Object hourLock = new Object();
+    private final long[] hourOf = new long[HOURS];
+    private final long[] hourOrders = new long[HOURS];
+    private final long[] hourRevenue = new long[HOURS];
+
+    /**
+     * Constructs an empty rollup.
+     */
+    public SalesRollup() {
+        Arrays.fill(hourOf, Long.MIN_VALUE);
+    }
+
+    /**
+     * Adds a placed order to the figures.
+     *
+     * @param order placed order, with its placement time set
+     */
+    void record(Order order) {
+        apply(order, 1);
+    }
+
+    /**
+     * Adds every order of an archive to the figures, reading the archive's columns
+     * without restoring the orders. Used when an archive saved by an earlier run is
+     * loaded, since its orders are not replayed.
+     *
+     * @param archive archive whose orders have not been recorded yet
+     */
+    void record(OrderArchive archive) {
+        archive.forEachLine((number, placedAt, config, quantity, cents) -> addLine(config, quantity, cents));
+        archive.forEachOrder((number, placedAt, lineCount, subtotal) -> addOrder(placedAt, subtotal, 1));
+    }
+
+    /**
+     * Takes a cancelled order back out of the figures. If its hour has already left the
+     * hourly window, only the category and overall figures change.
+     *
+     * @param order cancelled order, as it was recorded
+     */
+    void unrecord(Order order) {
+        apply(order, -1);
+    }
+
+    private void apply(Order order, int sign) {
+        for (MenuItem item : order.getItems()) {
+            addLine(item.getConfig(), sign * (long) item.getQuantity(), sign * item.priceCents());
+        }
+        addOrder(order.getPlacedAt(), sign * order.getSubtotalCents(), sign);
+    }
+
+    private void addLine(ItemConfig config, long units, long cents) {
+        if (config instanceof DonutConfig) {
+            int index = ((DonutConfig) config).getType().ordinal();
+            donutUnits.addAndGet(index, units);
+            donutRevenue.addAndGet(index, cents);
+        } else if (config instanceof CoffeeConfig) {
+            int index = ((CoffeeConfig) config).getSize().ordinal();
+            coffeeUnits.addAndGet(index, units);
+            coffeeRevenue.addAndGet(index, cents);
+        } else if (config instanceof SandwichConfig) {
+            int index = ((SandwichConfig) config).getProtein().ordinal();
+            sandwichUnits.addAndGet(index, units);
+            sandwichRevenue.addAndGet(index, cents);
+        }
+    }
+
+    private void addOrder(long placedAt, long subtotal, int sign) {
+        orders.addAndGet(sign);
+        revenue.addAndGet(subtotal);
+
+        long hour = Math.floorDiv(placedAt, HOUR_MILLIS);
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        synchronized (hourLock) {
+            if (hourOf[slot] != hour) {
+                if (hourOf[slot] > hour || sign < 0) {
+                    // older than the window, or cancelling from an hour already rolled over
+                    return;
+                }
+                hourOf[slot] = hour;
+                hourOrders[slot] = 0;
+                hourRevenue[slot] = 0;
+            }
+            hourOrders[slot] += sign;
+            hourRevenue[slot] += subtotal;
+        }
+    }
+
+    /**
+     * Gets the number of orders placed and not cancelled.
+     *
+     * @return order count
+     */
+    public long getOrderCount() {
+        return orders.get();
+    }
+
+    /**
+     * Gets the revenue of all orders placed and not cancelled.
+     *
+     * @return revenue in cents
+     */
+    public long getRevenueCents() {
+        return revenue.get();
+    }
+
+    /**
+     * Gets the number of donuts of a type sold.
+     *
+     * @param type donut type
+     * @return units sold
+     */
+    public long getUnits(DonutType type) {
+        return donutUnits.get(type.ordinal());
+    }
+
+    /**
+     * Gets the revenue from donuts of a type.
+     *
+     * @param type donut type
+     * @return revenue in cents
+     */
+    public long getRevenueCents(DonutType type) {
+        return donutRevenue.get(type.ordinal());
+    }
+
+    /**
+     * Gets the number of coffees of a size sold.
+     *
+     * @param size cup size
+     * @return units sold
+     */
+    public long getUnits(CupSize size) {
+        return coffeeUnits.get(size.ordinal());
+    }
+
+    /**
+     * Gets the revenue from coffees of a size.
+     *
+     * @param size cup size
+     * @return revenue in cents
+     */
+    public long getRevenueCents(CupSize size) {
+        return coffeeRevenue.get(size.ordinal());
+    }
+
+    /**
+     * Gets the number of sandwiches with a protein sold.
+     *
+     * @param protein protein choice
+     * @return units sold
+     */
+    public long getUnits(Protein protein) {
+        return sandwichUnits.get(protein.ordinal());
+    }
+
+    /**
+     * Gets the revenue from sandwiches with a protein.
+     *
+     * @param protein protein choice
+     * @return revenue in cents
+     */
+    public long getRevenueCents(Protein protein) {
+        return sandwichRevenue.get(protein.ordinal());
+    }
+
+    /**
+     * Gets the number of orders placed during the clock hour containing the given time.
+     *
+     * @param epochMillis any time within the hour
+     * @return order count, or 0 if the hour is outside the hourly window
+     */
+    public long getHourlyOrderCount(long epochMillis) {
+        long hour = Math.floorDiv(epochMillis, HOUR_MILLIS);
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        synchronized (hourLock) {
+            return hourOf[slot] == hour ? hourOrders[slot] : 0;
+        }
+    }
+
+    /**
+     * Gets the revenue of orders placed during the clock hour containing the given time.
+     *
+     * @param epochMillis any time within the hour
+     * @return revenue in cents, or 0 if the hour is outside the hourly window
+     */
+    public long getHourlyRevenueCents(long epochMillis) {
+        long hour = Math.floorDiv(epochMillis, HOUR_MILLIS);
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        synchronized (hourLock) {
+            return hourOf[slot] == hour ? hourRevenue[slot] : 0;
+        }
+    }
+}
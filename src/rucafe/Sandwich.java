@@ -1,11 +1,11 @@
 package rucafe;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a sandwich menu item with bread, protein, extras, and quantity.
  * The base price depends on the protein, and each extra topping adds cost.
+ * Bread, protein, and extras are held in a shared {@link SandwichConfig}.
  *
  * The final price is (base + extras) * quantity.
  *
@@ -13,19 +13,6 @@ import java.util.List;
  */
 public class Sandwich extends MenuItem implements Customizable {
 
-    private Bread bread;
-    private Protein protein;
-    private final List<SandwichExtra> extras;
-
-    // base price per protein
-    private static final double BEEF_PRICE    = 12.99;
-    private static final double CHICKEN_PRICE = 10.99;
-    private static final double SALMON_PRICE  = 14.99;
-
-    // extra prices
-    private static final double VEGGIE_PRICE = 0.30; // lettuce, tomatoes, onions
-    private static final double CHEESE_PRICE = 1.00;
-
     /**
      * Constructs a Sandwich with given bread, protein and quantity.
      * Extras list is initially empty.
@@ -35,10 +22,7 @@ public class Sandwich extends MenuItem implements Customizable {
      * @param quantity quantity of this sandwich
      */
     public Sandwich(Bread bread, Protein protein, int quantity) {
-        super(quantity);
-        this.bread = bread;
-        this.protein = protein;
-        this.extras = new ArrayList<>();
+        this(SandwichConfig.of(bread, protein), quantity);
     }
 
     /**
@@ -51,13 +35,33 @@ public class Sandwich extends MenuItem implements Customizable {
         this(bread, protein, 1);
     }
 
+    /**
+     * Constructs a Sandwich from a shared configuration.
+     *
+     * @param config   sandwich configuration
+     * @param quantity quantity of this sandwich
+     */
+    public Sandwich(SandwichConfig config, int quantity) {
+        super(config, quantity);
+    }
+
+    /**
+     * Gets the sandwich configuration.
+     *
+     * @return the shared configuration
+     */
+    @Override
+    public SandwichConfig getConfig() {
+        return (SandwichConfig) super.getConfig();
+    }
+
     /**
      * Gets the bread type.
      *
      * @return bread type
      */
     public Bread getBread() {
-        return bread;
+        return getConfig().getBread();
     }
 
     /**
@@ -66,7 +70,7 @@ public class Sandwich extends MenuItem implements Customizable {
      * @param bread new bread type
      */
     public void setBread(Bread bread) {
-        this.bread = bread;
+        setConfig(getConfig().withBread(bread));
     }
 
     /**
@@ -75,7 +79,7 @@ public class Sandwich extends MenuItem implements Customizable {
      * @return protein choice
      */
     public Protein getProtein() {
-        return protein;
+        return getConfig().getProtein();
     }
 
     /**
@@ -84,16 +88,36 @@ public class Sandwich extends MenuItem implements Customizable {
      * @param protein new protein choice
      */
     public void setProtein(Protein protein) {
-        this.protein = protein;
+        setConfig(getConfig().withProtein(protein));
     }
 
     /**
-     * Gets an unmodifiable list of extras.
+     * Gets an unmodifiable list of extras, in declaration order.
+     * The returned list is shared and never copied.
      *
      * @return extras list
      */
     public List<SandwichExtra> getExtras() {
-        return List.copyOf(extras);
+        return getConfig().getExtras();
+    }
+
+    /**
+     * Gets the current extras as a bitmask of {@code 1 << SandwichExtra.ordinal()}.
+     *
+     * @return extras bitmask
+     */
+    public int getExtrasMask() {
+        return getConfig().getExtrasMask();
+    }
+
+    /**
+     * Checks whether this sandwich has the given extra.
+     *
+     * @param extra extra to check
+     * @return true if present, false otherwise
+     */
+    public boolean hasExtra(SandwichExtra extra) {
+        return getConfig().hasExtra(extra);
     }
 
     /**
@@ -104,14 +128,11 @@ public class Sandwich extends MenuItem implements Customizable {
      */
     @Override
     public boolean add(Object obj) {
-        if (!(obj instanceof SandwichExtra)) {
-            return false;
-        }
-        SandwichExtra extra = (SandwichExtra) obj;
-        if (extras.contains(extra)) {
+        if (!(obj instanceof SandwichExtra) || hasExtra((SandwichExtra) obj)) {
             return false;
         }
-        return extras.add(extra);
+        setConfig(getConfig().withExtra((SandwichExtra) obj));
+        return true;
     }
 
     /**
@@ -122,57 +143,11 @@ public class Sandwich extends MenuItem implements Customizable {
      */
     @Override
     public boolean remove(Object obj) {
-        if (!(obj instanceof SandwichExtra)) {
+        if (!(obj instanceof SandwichExtra) || !hasExtra((SandwichExtra) obj)) {
             return false;
         }
-        return extras.remove((SandwichExtra) obj);
-    }
-
-    /**
-     * Computes the base price based on the selected protein.
-     *
-     * @return base price for a single sandwich
-     */
-    private double getBasePrice() {
-        switch (protein) {
-            case BEEF:
-                return BEEF_PRICE;
-            case CHICKEN:
-                return CHICKEN_PRICE;
-            case SALMON:
-                return SALMON_PRICE;
-            default:
-                return 0.0;
-        }
-    }
-
-    /**
-     * Computes the extra price based on selected extras.
-     *
-     * @return total extras price for a single sandwich
-     */
-    private double getExtrasPrice() {
-        double total = 0.0;
-        for (SandwichExtra extra : extras) {
-            if (extra == SandwichExtra.CHEESE) {
-                total += CHEESE_PRICE;
-            } else { // LETTUCE, TOMATOES, ONIONS
-                total += VEGGIE_PRICE;
-            }
-        }
-        return total;
-    }
-
-    /**
-     * Computes the total price of the sandwich:
-     * (base price + extras price) * quantity.
-     *
-     * @return total price
-     */
-    @Override
-    public double price() {
-        double single = getBasePrice() + getExtrasPrice();
-        return single * getQuantity();
+        setConfig(getConfig().withoutExtra((SandwichExtra) obj));
+        return true;
     }
 
     /**
@@ -182,25 +157,6 @@ public class Sandwich extends MenuItem implements Customizable {
      */
     @Override
     public String toString() {
-        return "Sandwich (" + bread + ", " + protein
-                + ", extras=" + extras + ", qty=" + getQuantity() + ")";
-    }
-
-    /**
-     * Two sandwiches are equal if they have same bread, protein, and extras set.
-     *
-     * @param obj object to compare
-     * @return true if logically equal, false otherwise
-     */
-    @Override
-    public boolean equals(Object obj) {
-        if (!(obj instanceof Sandwich)) {
-            return false;
-        }
-        Sandwich other = (Sandwich) obj;
-        return this.bread == other.bread
-                && this.protein == other.protein
-                && this.extras.containsAll(other.extras)
-                && other.extras.containsAll(this.extras);
+        return "Sandwich (" + getConfig() + ", qty=" + getQuantity() + ")";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package rucafe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interned sandwich configuration: a bread, a protein, and a set of extras. Extras are
+ * held as a bitmask of {@code 1 << SandwichExtra.ordinal()}.
+ * Obtain instances with {@link #of(Bread, Protein)} or {@link #of(Bread, Protein, int)}.
+ */
+public final class SandwichConfig extends ItemConfig {
+
+    /** Number of bits used by an extras mask. */
+    static final int EXTRA_BITS = SandwichExtra.values().length;
+
+    private static final int PROTEINS = Protein.values().length;
+
+    /** Indexed by {@code (bread.ordinal() * PROTEINS + protein.ordinal()) << EXTRA_BITS | extrasMask}. */
+    private static final SandwichConfig[] CONFIGS =
+            new SandwichConfig[Bread.values().length * PROTEINS << EXTRA_BITS];
+
+    static {
+        for (Bread bread : Bread.values()) {
+            for (Protein protein : Protein.values()) {
+                for (int mask = 0; mask < 1 << EXTRA_BITS; mask++) {
+                    int code = index(bread, protein, mask);
+                    CONFIGS[code] = new SandwichConfig(bread, protein, mask, code);
+                }
+            }
+        }
+    }
+
+    private final Bread bread;
+    private final Protein protein;
+    private final int extrasMask;
+    private final List<SandwichExtra> extras;
+
+    private SandwichConfig(Bread bread, Protein protein, int extrasMask, int code) {
+        super(SANDWICH, code);
+        this.bread = bread;
+        this.protein = protein;
+        this.extrasMask = extrasMask;
+        List<SandwichExtra> list = new ArrayList<>(Integer.bitCount(extrasMask));
+        for (SandwichExtra extra : SandwichExtra.values()) {
+            if ((extrasMask & bit(extra)) != 0) {
+                list.add(extra);
+            }
+        }
+        this.extras = List.copyOf(list);
+    }
+
+    /**
+     * Gets the shared configuration for a sandwich with no extras.
+     *
+     * @param bread   bread type
+     * @param protein protein choice
+     * @return the interned configuration
+     */
+    public static SandwichConfig of(Bread bread, Protein protein) {
+        return of(bread, protein, 0);
+    }
+
+    /**
+     * Gets the shared configuration for a sandwich.
+     *
+     * @param bread      bread type
+     * @param protein    protein choice
+     * @param extrasMask extras as a bitmask of {@code 1 << SandwichExtra.ordinal()}
+     * @return the interned configuration
+     * @throws IllegalArgumentException if the mask has bits for unknown extras
+     */
+    public static SandwichConfig of(Bread bread, Protein protein, int extrasMask) {
+        if (extrasMask >>> EXTRA_BITS != 0) {
+            throw new IllegalArgumentException("invalid extras mask " + extrasMask);
+        }
+        return CONFIGS[index(bread, protein, extrasMask)];
+    }
+
+    /**
+     * Gets a configuration by code.
+     *
+     * @param code value of {@link #code()}
+     * @return the interned configuration
+     * @throws IndexOutOfBoundsException if there is no such configuration
+     */
+    static SandwichConfig byCode(int code) {
+        return CONFIGS[code];
+    }
+
+    /**
+     * Gets the number of sandwich configurations.
+     *
+     * @return configuration count
+     */
+    static int count() {
+        return CONFIGS.length;
+    }
+
+    @Override
+    Sandwich newItem(int quantity) {
+        return new Sandwich(this, quantity);
+    }
+
+    @Override
+    int kind() {
+        return SANDWICH;
+    }
+
+    /**
+     * Gets the bread type.
+     *
+     * @return bread type
+     */
+    public Bread getBread() {
+        return bread;
+    }
+
+    /**
+     * Gets the protein choice.
+     *
+     * @return protein choice
+     */
+    public Protein getProtein() {
+        return protein;
+    }
+
+    /**
+     * Gets the extras as a bitmask of {@code 1 << SandwichExtra.ordinal()}.
+     *
+     * @return extras bitmask
+     */
+    public int getExtrasMask() {
+        return extrasMask;
+    }
+
+    /**
+     * Gets the extras in declaration order. The list is immutable and shared.
+     *
+     * @return extras list
+     */
+    public List<SandwichExtra> getExtras() {
+        return extras;
+    }
+
+    /**
+     * Checks whether this configuration has the given extra.
+     *
+     * @param extra extra to check
+     * @return true if present, false otherwise
+     */
+    public boolean hasExtra(SandwichExtra extra) {
+        return (extrasMask & bit(extra)) != 0;
+    }
+
+    /**
+     * Gets the configuration with a different bread.
+     *
+     * @param bread new bread type
+     * @return the interned configuration
+     */
+    public SandwichConfig withBread(Bread bread) {
+        return CONFIGS[index(bread, protein, extrasMask)];
+    }
+
+    /**
+     * Gets the configuration with a different protein.
+     *
+     * @param protein new protein choice
+     * @return the interned configuration
+     */
+    public SandwichConfig withProtein(Protein protein) {
+        return CONFIGS[index(bread, protein, extrasMask)];
+    }
+
+    /**
+     * Gets the configuration with an extra added.
+     *
+     * @param extra extra to add
+     * @return the interned configuration; this one if the extra is already present
+     */
+    public SandwichConfig withExtra(SandwichExtra extra) {
+        return CONFIGS[code() | bit(extra)];
+    }
+
+    /**
+     * Gets the configuration with an extra removed.
+     *
+     * @param extra extra to remove
+     * @return the interned configuration; this one if the extra is not present
+     */
+    public SandwichConfig withoutExtra(SandwichExtra extra) {
+        return CONFIGS[code() & ~bit(extra)];
+    }
+
+    @Override
+    public String toString() {
+        return bread + ", " + protein + ", extras=" + extras;
+    }
+
+    private static int index(Bread bread, Protein protein, int extrasMask) {
+        return (bread.ordinal() * PROTEINS + protein.ordinal()) << EXTRA_BITS | extrasMask;
+    }
+
+    private static int bit(SandwichExtra extra) {
+        return 1 << extra.ordinal();
+    }
+}
@@ -0,0 +1,393 @@
+package rucafe;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Placed orders of many store locations, kept as one {@link StoreOrders} partition per
+ * store, or per store and business day, so a regional office can hold every store in
+ * one process and still query any one of them on its own.
+ *
+ * Queries across partitions run in parallel on the common fork-join pool: every
+ * matching partition's order snapshot is cut into segments, segments are summarized
+ * independently, and the results are merged. A {@link Summary} holds order count,
+ * revenue, and units sold per item configuration, from which the top sellers are
+ * ranked. Archived orders are not included.
+ *
+ * Order numbers only need to be unique within a store; the same number may be used by
+ * several stores.
+ *
+ * This class is thread-safe. Partitions are created on first use and can be added to
+ * while queries run; a query sees each partition as of the moment it reaches it.
+ */
+public class StoreNetwork {
+
+    /** Most orders one fork-join task summarizes without splitting further. */
+    private static final int SEGMENT = 4096;
+
+    /**
+     * Identifies a partition: a store, and the business day if the network is
+     * partitioned by day.
+     */
+    public static final class Key {
+        private final String storeId;
+        private final LocalDate day;
+
+        Key(String storeId, LocalDate day) {
+            this.storeId = Objects.requireNonNull(storeId, "storeId");
+            this.day = day;
+        }
+
+        /**
+         * Gets the store this partition belongs to.
+         *
+         * @return store id
+         */
+        public String getStoreId() {
+            return storeId;
+        }
+
+        /**
+         * Gets the business day this partition holds.
+         *
+         * @return the day, or null if the partition holds all of the store's orders
+         */
+        public LocalDate getDay() {
+            return day;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return storeId.equals(other.storeId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return storeId.hashCode() * 31 + Objects.hashCode(day);
+        }
+
+        @Override
+        public String toString() {
+            return day == null ? storeId : storeId + "/" + day;
+        }
+    }
+
+    /**
+     * Totals over a set of orders. Summaries are immutable once returned.
+     */
+    public static final class Summary {
+        private long orders;
+        private long revenueCents;
+        /** Units sold, indexed by kind tag and then configuration code. */
+        private final long[][] units = {
+                new long[DonutConfig.count()],
+                new long[CoffeeConfig.count()],
+                new long[SandwichConfig.count()]
+        };
+
+        private void add(Order order) {
+            orders++;
+            revenueCents += order.getSubtotalCents();
+            for (MenuItem item : order.getItems()) {
+                ItemConfig config = item.getConfig();
+                units[config.kind()][config.code()] += item.getQuantity();
+            }
+        }
+
+        private Summary merge(Summary other) {
+            orders += other.orders;
+            revenueCents += other.revenueCents;
+            for (int kind = 0; kind < units.length; kind++) {
+                long[] mine = units[kind];
+                long[] theirs = other.units[kind];
+                for (int code = 0; code < mine.length; code++) {
+                    mine[code] += theirs[code];
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Gets the number of orders.
+         *
+         * @return order count
+         */
+        public long getOrderCount() {
+            return orders;
+        }
+
+        /**
+         * Gets the revenue before tax.
+         *
+         * @return sum of order subtotals in cents
+         */
+        public long getRevenueCents() {
+            return revenueCents;
+        }
+
+        /**
+         * Gets the units sold of a configuration.
+         *
+         * @param config item configuration
+         * @return units sold
+         */
+        public long getUnits(ItemConfig config) {
+            return units[config.kind()][config.code()];
+        }
+
+        /**
+         * Gets the best-selling configurations by units sold. Ties keep a fixed but
+         * unspecified order.
+         *
+         * @param limit most configurations to return
+         * @return up to {@code limit} configurations that sold at least one unit, best first
+         */
+        public List<ItemConfig> getTopItems(int limit) {
+            List<ItemConfig> sold = new ArrayList<>();
+            for (int kind = 0; kind < units.length; kind++) {
+                for (int code = 0; code < units[kind].length; code++) {
+                    if (units[kind][code] > 0) {
+                        sold.add(ItemConfig.of(kind, code));
+                    }
+                }
+            }
+            sold.sort((a, b) -> Long.compare(getUnits(b), getUnits(a)));
+            return sold.size() > limit ? new ArrayList<>(sold.subList(0, limit)) : sold;
+        }
+    }
+
+    /**
+     * A run of orders from one store's partition.
+     */
+    private static final class Segment {
+        final String storeId;
+        final List<Order> orders;
+        final int from;
+        final int to;
+
+        Segment(String storeId, List<Order> orders, int from, int to) {
+            this.storeId = storeId;
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Summarizes segments per store, splitting the segment range in half until a
+     * single segment is left.
+     */
+    private static final class SummaryTask extends RecursiveTask<Map<String, Summary>> {
+        private static final long serialVersionUID = 1L;
+
+        // tasks only run in this process and are never serialized
+        private final transient List<Segment> segments;
+        private final int from;
+        private final int to;
+
+        SummaryTask(List<Segment> segments, int from, int to) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, Summary> compute() {
+            if (to - from == 1) {
+                Segment segment = segments.get(from);
+                Summary summary = new Summary();
+                for (int i = segment.from; i < segment.to; i++) {
+                    summary.add(segment.orders.get(i));
+                }
+                Map<String, Summary> result = new HashMap<>();
+                result.put(segment.storeId, summary);
+                return result;
+            }
+            int mid = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(segments, from, mid);
+            left.fork();
+            Map<String, Summary> result = new SummaryTask(segments, mid, to).compute();
+            for (Map.Entry<String, Summary> entry : left.join().entrySet()) {
+                result.merge(entry.getKey(), entry.getValue(), Summary::merge);
+            }
+            return result;
+        }
+    }
+
+    private final ZoneId dayZone;
+    private final Map<Key, StoreOrders> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a network with one partition per store.
+     */
+    public StoreNetwork() {
+        this(null);
+    }
+
+    /**
+     * Constructs a network with one partition per store and business day.
+     *
+     * @param dayZone time zone whose calendar days divide the partitions, or null for
+     *                one partition per store
+     */
+    public StoreNetwork(ZoneId dayZone) {
+        this.dayZone = dayZone;
+    }
+
+    /**
+     * Checks whether orders are partitioned by business day as well as by store.
+     *
+     * @return true if partitioned by day
+     */
+    public boolean isPartitionedByDay() {
+        return dayZone != null;
+    }
+
+    /**
+     * Adds an existing store's orders as a partition holding all of that store's
+     * orders, such as the store this process runs the registers for.
+     *
+     * @param storeId store id
+     * @param orders  the store's orders
+     * @return true if added, false if the store already has such a partition
+     */
+    public boolean register(String storeId, StoreOrders orders) {
+        return partitions.putIfAbsent(new Key(storeId, null), orders) == null;
+    }
+
+    /**
+     * Adds a placed order to its store's partition, or, if the network is partitioned
+     * by day, to the store's partition for the day it was placed. The partition is
+     * created if needed. The order is added while the partition is locked in the
+     * partition map, so it cannot land in a partition being dropped by
+     * {@link #dropDaysBefore(LocalDate)}.
+     *
+     * @param storeId store the order was placed at
+     * @param order   placed order whose number is not already stored in that partition
+     * @return true if added, false if the partition already holds that order number
+     */
+    public boolean add(String storeId, Order order) {
+        LocalDate day = null;
+        if (dayZone != null) {
+            long placedAt = order.getPlacedAt() != 0 ? order.getPlacedAt() : System.currentTimeMillis();
+            day = LocalDate.ofInstant(Instant.ofEpochMilli(placedAt), dayZone);
+        }
+        boolean[] added = new boolean[1];
+        partitions.compute(new Key(storeId, day), (k, orders) -> {
+            if (orders == null) {
+                orders = new StoreOrders();
+            }
+            added[0] = orders.add(order);
+            return orders;
+        });
+        return added[0];
+    }
+
+    /**
+     * Gets a partition.
+     *
+     * @param storeId store id
+     * @param day     business day, or null for a partition holding all of the store's orders
+     * @return the partition, or null if there is none
+     */
+    public StoreOrders getPartition(String storeId, LocalDate day) {
+        return partitions.get(new Key(storeId, day));
+    }
+
+    /**
+     * Gets the keys of all partitions.
+     *
+     * @return a new list of partition keys, in no particular order
+     */
+    public List<Key> getPartitions() {
+        return new ArrayList<>(partitions.keySet());
+    }
+
+    /**
+     * Removes the day partitions of days before a given day, once their orders have
+     * been reported. Partitions without a day are kept. An order added for a dropped
+     * day afterwards starts a new partition for that day.
+     *
+     * @param day first day to keep
+     * @return number of partitions removed
+     */
+    public int dropDaysBefore(LocalDate day) {
+        int dropped = 0;
+        for (Key key : getPartitions()) {
+            if (key.day != null && key.day.isBefore(day) && partitions.remove(key) != null) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Summarizes every order in the network.
+     *
+     * @return totals over all partitions
+     */
+    public Summary summarize() {
+        return summarize(key -> true);
+    }
+
+    /**
+     * Summarizes the orders of the partitions a filter accepts, such as one store or a
+     * range of days.
+     *
+     * @param filter accepts the partitions to include
+     * @return totals over the accepted partitions
+     */
+    public Summary summarize(Predicate<Key> filter) {
+        Summary total = new Summary();
+        for (Summary summary : summarizeByStore(filter).values()) {
+            total.merge(summary);
+        }
+        return total;
+    }
+
+    /**
+     * Summarizes the orders of the partitions a filter accepts, separately for each
+     * store.
+     *
+     * @param filter accepts the partitions to include
+     * @return totals for each store with at least one accepted partition
+     */
+    public Map<String, Summary> summarizeByStore(Predicate<Key> filter) {
+        List<Segment> segments = new ArrayList<>();
+        Map<String, Summary> result = new HashMap<>();
+        for (Map.Entry<Key, StoreOrders> entry : partitions.entrySet()) {
+            if (!filter.test(entry.getKey())) {
+                continue;
+            }
+            String storeId = entry.getKey().storeId;
+            // stores whose partitions are all empty still get an empty summary
+            result.putIfAbsent(storeId, new Summary());
+            List<Order> orders = entry.getValue().getOrders();
+            for (int from = 0; from < orders.size(); from += SEGMENT) {
+                segments.add(new Segment(storeId, orders, from, Math.min(from + SEGMENT, orders.size())));
+            }
+        }
+        if (!segments.isEmpty()) {
+            Map<String, Summary> summed = ForkJoinPool.commonPool()
+                    .invoke(new SummaryTask(segments, 0, segments.size()));
+            for (Map.Entry<String, Summary> entry : summed.entrySet()) {
+                result.merge(entry.getKey(), entry.getValue(), Summary::merge);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -1,41 +1,422 @@
 package rucafe;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Stores all placed orders in the cafe.
- * Provides methods to add/remove orders and export them to a text file.
+ * Provides methods to add/remove orders and export them to a file.
+ * Orders are kept in insertion order and indexed by order number.
+ * {@link #getOrders()} returns an immutable snapshot that is only rebuilt after
+ * an order is added or removed.
+ *
+ * This class is thread-safe. Orders are spread over lock stripes by order number,
+ * so threads adding, finding, or removing different orders rarely contend. Each
+ * order is stamped with a store-wide sequence number on insertion, which is used to
+ * merge the stripes back into insertion order for snapshots.
+ *
+ * Registered {@link Listener}s are told about every order added or removed and every
+ * status change, so views can apply just that change instead of reloading every order.
+ * They are also told when an order is {@link #flag(int, String) flagged} for staff.
+ *
+ * Old orders can be aged out into an off-heap {@link OrderArchive}. Archived orders
+ * no longer appear in {@link #getOrders()} or {@link #findStored(int)}, but
+ * {@link #findByNumber(int)} still finds them, as read-only copies rebuilt from the
+ * archive, and they can be scanned through {@link #getArchive()}.
+ *
+ * Stored orders are also indexed by {@link OrderStatus}, in insertion order, so the
+ * open or ready orders can be listed and counted without a scan of every order.
+ * Orders move between states through {@link #advance(int, OrderStatus)}; orders still
+ * new when added are marked placed. The wait and preparation times of orders that
+ * move through the kitchen are kept in {@link LatencyWindow}s for percentiles.
  *
  * @author Sunghyun Kim
  */
 public class StoreOrders implements Customizable {
 
-    private final List<Order> orders;
+    /**
+     * Receives orders as they are added to or removed from the store. Called on the
+     * thread that changed the store, after the change and outside any store lock, so
+     * listeners that update a UI must hand the change to the UI thread themselves.
+     */
+    public interface Listener {
+
+        /**
+         * Called after an order is added. Orders are added at the end of
+         * {@link #getOrders()}.
+         *
+         * @param order the added order
+         */
+        void orderAdded(Order order);
+
+        /**
+         * Called after an order is removed, whether cancelled or archived.
+         *
+         * @param order the removed order
+         */
+        void orderRemoved(Order order);
+
+        /**
+         * Called after a stored order moves to a new status.
+         *
+         * @param order    the order, already in its new status
+         * @param previous the status it moved from
+         */
+        default void orderStatusChanged(Order order, OrderStatus previous) {
+        }
+
+        /**
+         * Called when a stored order needs staff to step in, for example because the
+         * kitchen could not prepare it.
+         *
+         * @param order  the order
+         * @param reason what went wrong, for showing to staff
+         */
+        default void orderNeedsAttention(Order order, String reason) {
+        }
+    }
+
+    private static final int STRIPES = 16;
+
+    private final IntKeyedList<Order>[] stripes;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private final OrderArchive archive = new OrderArchive();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    /** Stored orders in each status, keyed by store sequence; changed under the order's stripe lock. */
+    private final Map<OrderStatus, ConcurrentSkipListMap<Long, Order>> byStatus = new EnumMap<>(OrderStatus.class);
+    private final AtomicIntegerArray statusCounts = new AtomicIntegerArray(OrderStatus.values().length);
+    private final LatencyWindow waitTimes = new LatencyWindow();
+    private final LatencyWindow prepTimes = new LatencyWindow();
+
+    /**
+     * Orders in insertion order, as of a given version.
+     */
+    private static final class Snapshot {
+        final long version;
+        final List<Order> orders;
+
+        Snapshot(long version, List<Order> orders) {
+            this.version = version;
+            this.orders = orders;
+        }
+    }
 
     /**
      * Constructs an empty StoreOrders list.
      */
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public StoreOrders() {
-        this.orders = new ArrayList<>();
+        this.stripes = new IntKeyedList[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new IntKeyedList<>();
+        }
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListMap<>());
+        }
     }
 
     /**
-     * Gets an unmodifiable list of all stored orders.
+     * Gets an unmodifiable snapshot of all stored orders, in insertion order.
+     * The same snapshot is returned until an order is next added or removed.
      *
      * @return list of orders
      */
     public List<Order> getOrders() {
-        return List.copyOf(orders);
+        long current = version.get();
+        Snapshot cached = snapshot;
+        if (cached != null && cached.version == current) {
+            return cached.orders;
+        }
+        List<Order> orders = mergeStripes();
+        snapshot = new Snapshot(current, orders);
+        return orders;
+    }
+
+    /**
+     * Gets the version of this store, which increases every time an order is
+     * added or removed.
+     *
+     * @return current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Gets the number of stored orders.
+     *
+     * @return number of orders
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Finds an order by its order number, whether stored or archived.
+     *
+     * @param orderNumber order number to look up
+     * @return the stored order, a read-only copy of the archived order, or null if
+     * there is no such order
+     */
+    public Order findByNumber(int orderNumber) {
+        Order order = findStored(orderNumber);
+        return order != null ? order : archive.restore(orderNumber);
+    }
+
+    /**
+     * Finds a stored order by its order number, leaving out archived orders.
+     *
+     * @param orderNumber order number to look up
+     * @return the order, or null if there is no such stored order
+     */
+    public Order findStored(int orderNumber) {
+        IntKeyedList<Order> stripe = stripeFor(orderNumber);
+        synchronized (stripe) {
+            return stripe.get(orderNumber);
+        }
+    }
+
+    /**
+     * Gets the stored orders in a status, in insertion order.
+     *
+     * @param status status to list
+     * @return a new list of the orders in that status
+     */
+    public List<Order> getOrders(OrderStatus status) {
+        return new ArrayList<>(byStatus.get(status).values());
+    }
+
+    /**
+     * Gets the number of stored orders in a status. Cancelled orders are removed from
+     * the store, so none are ever counted as {@link OrderStatus#CANCELLED}.
+     *
+     * @param status status to count
+     * @return number of orders in that status
+     */
+    public int count(OrderStatus status) {
+        return statusCounts.get(status.ordinal());
+    }
+
+    /**
+     * Moves a stored order to a new status, stamping the time of the move.
+     * The order is moved and re-indexed under its stripe lock.
+     *
+     * @param orderNumber number of the order to move
+     * @param next        status to move to
+     * @return true if moved, false if there is no such order or the move is not
+     * allowed from its current status
+     */
+    public boolean advance(int orderNumber, OrderStatus next) {
+        IntKeyedList<Order> stripe = stripeFor(orderNumber);
+        Order order;
+        OrderStatus previous;
+        synchronized (stripe) {
+            order = stripe.get(orderNumber);
+            if (order == null) {
+                return false;
+            }
+            previous = order.getStatus();
+            if (!order.advance(next, System.nanoTime())) {
+                return false;
+            }
+            unindex(order, previous);
+            index(order);
+        }
+        // an order marked ready straight from placed is started at the same moment
+        if (next == OrderStatus.IN_PROGRESS || (next == OrderStatus.READY && previous == OrderStatus.PLACED)) {
+            waitTimes.record(order.getStatusNanos(OrderStatus.IN_PROGRESS), order.getWaitNanos());
+        }
+        if (next == OrderStatus.READY) {
+            prepTimes.record(order.getStatusNanos(OrderStatus.READY), order.getPrepNanos());
+        }
+        for (Listener listener : listeners) {
+            listener.orderStatusChanged(order, previous);
+        }
+        return true;
+    }
+
+    /**
+     * Tells listeners that a stored order needs staff to step in. The order itself is
+     * not changed.
+     *
+     * @param orderNumber number of the order
+     * @param reason      what went wrong, for showing to staff
+     * @return true if reported, false if there is no such stored order
+     */
+    public boolean flag(int orderNumber, String reason) {
+        Order order = findStored(orderNumber);
+        if (order == null) {
+            return false;
+        }
+        for (Listener listener : listeners) {
+            listener.orderNeedsAttention(order, reason);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the recent times orders waited between being placed and being started.
+     *
+     * @return wait times in nanoseconds
+     */
+    public LatencyWindow getWaitTimes() {
+        return waitTimes;
+    }
+
+    /**
+     * Gets the recent times orders took from being started to being ready.
+     *
+     * @return preparation times in nanoseconds
+     */
+    public LatencyWindow getPrepTimes() {
+        return prepTimes;
+    }
+
+    /**
+     * Registers a listener for added and removed orders.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Finds an archived order by its order number and rebuilds it.
+     *
+     * @param orderNumber order number to look up
+     * @return a read-only copy of the archived order, or null if it is not archived
+     */
+    public Order findArchived(int orderNumber) {
+        return archive.restore(orderNumber);
+    }
+
+    /**
+     * Gets the archive of aged-out orders.
+     *
+     * @return order archive
+     */
+    public OrderArchive getArchive() {
+        return archive;
+    }
+
+    /**
+     * Moves every order placed before the cutoff into the archive. Each order is
+     * archived and removed under its stripe lock, so a concurrent lookup finds it in
+     * exactly one place once this returns.
+     *
+     * @param cutoffMillis orders placed before this epoch millis are archived
+     * @return number of orders archived
+     */
+    public int archivePlacedBefore(long cutoffMillis) {
+        int archived = 0;
+        for (Order order : getOrders()) {
+            if (order.getPlacedAt() >= cutoffMillis) {
+                continue;
+            }
+            int number = order.getOrderNumber();
+            IntKeyedList<Order> stripe = stripeFor(number);
+            synchronized (stripe) {
+                if (stripe.get(number) != order) {
+                    continue;
+                }
+                archive.add(order);
+                stripe.remove(number);
+                unindex(order, order.getStatus());
+            }
+            size.decrementAndGet();
+            archived++;
+            fireRemoved(order);
+        }
+        if (archived > 0) {
+            version.incrementAndGet();
+        }
+        return archived;
+    }
+
+    /**
+     * Cancels a stored order: moves it to {@link OrderStatus#CANCELLED} and removes it,
+     * both under its stripe lock. Listeners are told about the status change and then
+     * the removal.
+     *
+     * @param orderNumber number of the order to cancel
+     * @return the cancelled order, or null if there is no such order or it is already
+     * cancelled
+     */
+    public Order cancel(int orderNumber) {
+        IntKeyedList<Order> stripe = stripeFor(orderNumber);
+        Order cancelled;
+        OrderStatus previous;
+        synchronized (stripe) {
+            cancelled = stripe.get(orderNumber);
+            if (cancelled == null) {
+                return null;
+            }
+            previous = cancelled.getStatus();
+            if (!cancelled.advance(OrderStatus.CANCELLED, System.nanoTime())) {
+                return null;
+            }
+            stripe.remove(orderNumber);
+            unindex(cancelled, previous);
+        }
+        size.decrementAndGet();
+        version.incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.orderStatusChanged(cancelled, previous);
+        }
+        fireRemoved(cancelled);
+        return cancelled;
+    }
+
+    /**
+     * Removes a stored order by its order number.
+     *
+     * @param orderNumber order number to remove
+     * @return the removed order, or null if there was no such order
+     */
+    public Order removeByNumber(int orderNumber) {
+        IntKeyedList<Order> stripe = stripeFor(orderNumber);
+        Order removed;
+        synchronized (stripe) {
+            removed = stripe.remove(orderNumber);
+            if (removed != null) {
+                unindex(removed, removed.getStatus());
+            }
+        }
+        if (removed != null) {
+            size.decrementAndGet();
+            version.incrementAndGet();
+            fireRemoved(removed);
+        }
+        return removed;
     }
 
     /**
      * Adds an order to the store.
      *
-     * @param obj should be an Order
+     * @param obj should be an Order whose number is not already stored
      * @return true if added, false otherwise
      */
     @Override
@@ -43,7 +424,73 @@ public class StoreOrders implements Customizable {
         if (!(obj instanceof Order)) {
             return false;
         }
-        return orders.add((Order) obj);
+        Order order = (Order) obj;
+        int number = order.getOrderNumber();
+        IntKeyedList<Order> stripe = stripeFor(number);
+        synchronized (stripe) {
+            if (stripe.containsKey(number)) {
+                return false;
+            }
+            // stamped under the stripe lock so each stripe stays in sequence order
+            order.setStoreSequence(sequence.incrementAndGet());
+            stripe.add(number, order);
+            place(order);
+        }
+        size.incrementAndGet();
+        version.incrementAndGet();
+        for (Listener listener : listeners) {
+            listener.orderAdded(order);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a batch of orders in one step. All stripes are locked together, so the
+     * batch is stamped in list order and no other order is interleaved with it.
+     * Orders whose number is already stored, or repeated within the batch, are skipped.
+     *
+     * @param orders orders to add
+     * @return number of orders added
+     */
+    public int addAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        List<Order> added = new ArrayList<>(orders.size());
+        addAllLocked(orders, 0, added);
+        if (!added.isEmpty()) {
+            size.addAndGet(added.size());
+            version.incrementAndGet();
+            for (Listener listener : listeners) {
+                for (Order order : added) {
+                    listener.orderAdded(order);
+                }
+            }
+        }
+        return added.size();
+    }
+
+    /**
+     * Takes the stripe locks in index order, the same order for every caller, and
+     * adds the batch once all of them are held.
+     */
+    private void addAllLocked(List<Order> orders, int stripe, List<Order> added) {
+        if (stripe < STRIPES) {
+            synchronized (stripes[stripe]) {
+                addAllLocked(orders, stripe + 1, added);
+            }
+            return;
+        }
+        for (Order order : orders) {
+            int number = order.getOrderNumber();
+            IntKeyedList<Order> target = stripeFor(number);
+            if (!target.containsKey(number)) {
+                order.setStoreSequence(sequence.incrementAndGet());
+                target.add(number, order);
+                place(order);
+                added.add(order);
+            }
+        }
     }
 
     /**
@@ -57,7 +504,45 @@ public class StoreOrders implements Customizable {
         if (!(obj instanceof Order)) {
             return false;
         }
-        return orders.remove((Order) obj);
+        Order order = (Order) obj;
+        int number = order.getOrderNumber();
+        IntKeyedList<Order> stripe = stripeFor(number);
+        synchronized (stripe) {
+            if (stripe.get(number) != order) {
+                return false;
+            }
+            stripe.remove(number);
+            unindex(order, order.getStatus());
+        }
+        size.decrementAndGet();
+        version.incrementAndGet();
+        fireRemoved(order);
+        return true;
+    }
+
+    /**
+     * Marks a newly stored order placed if it is still new, and indexes it.
+     * Called under the order's stripe lock.
+     */
+    private void place(Order order) {
+        order.advance(OrderStatus.PLACED, System.nanoTime());
+        index(order);
+    }
+
+    private void index(Order order) {
+        byStatus.get(order.getStatus()).put(order.getStoreSequence(), order);
+        statusCounts.incrementAndGet(order.getStatus().ordinal());
+    }
+
+    private void unindex(Order order, OrderStatus status) {
+        byStatus.get(status).remove(order.getStoreSequence());
+        statusCounts.decrementAndGet(status.ordinal());
+    }
+
+    private void fireRemoved(Order order) {
+        for (Listener listener : listeners) {
+            listener.orderRemoved(order);
+        }
     }
 
     /**
@@ -67,16 +552,61 @@ public class StoreOrders implements Customizable {
      * @throws IOException if an I/O error occurs
      */
     public void exportToFile(File file) throws IOException {
-        try (FileWriter writer = new FileWriter(file)) {
-            for (Order order : orders) {
-                writer.write(order.toString() + System.lineSeparator());
-                for (MenuItem item : order.getItems()) {
-                    writer.write("\t" + item.toString() + "  $" + String.format("%.2f", item.price()) + System.lineSeparator());
+        exportToFile(file, ExportFormat.TEXT);
+    }
+
+    /**
+     * Exports all orders to the given file in the given format. Orders are streamed
+     * through a buffered channel, so memory use does not grow with the number of orders.
+     *
+     * @param file   target file to write to
+     * @param format output format
+     * @throws IOException if an I/O error occurs
+     */
+    public void exportToFile(File file, ExportFormat format) throws IOException {
+        try (OrderExporter exporter = new OrderExporter(file.toPath(), format)) {
+            for (Order order : getOrders()) {
+                exporter.write(order);
+            }
+        }
+    }
+
+    private IntKeyedList<Order> stripeFor(int orderNumber) {
+        int h = orderNumber * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Copies each stripe under its own lock, then merges the copies by store sequence.
+     */
+    private List<Order> mergeStripes() {
+        List<List<Order>> parts = new ArrayList<>(STRIPES);
+        int total = 0;
+        for (IntKeyedList<Order> stripe : stripes) {
+            List<Order> part;
+            synchronized (stripe) {
+                part = stripe.toList();
+            }
+            parts.add(part);
+            total += part.size();
+        }
+        List<Order> merged = new ArrayList<>(total);
+        int[] positions = new int[STRIPES];
+        while (merged.size() < total) {
+            int best = -1;
+            long bestSequence = Long.MAX_VALUE;
+            for (int i = 0; i < STRIPES; i++) {
+                List<Order> part = parts.get(i);
+                if (positions[i] < part.size()) {
+                    long candidate = part.get(positions[i]).getStoreSequence();
+                    if (candidate < bestSequence) {
+                        bestSequence = candidate;
+                        best = i;
+                    }
                 }
-                writer.write(String.format("\tSubtotal: $%.2f%n", order.getSubtotal()));
-                writer.write(String.format("\tTax:      $%.2f%n", order.getTax()));
-                writer.write(String.format("\tTotal:    $%.2f%n%n", order.getTotal()));
             }
+            merged.add(parts.get(best).get(positions[best]++));
         }
+        return Collections.unmodifiableList(merged);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks {@link IntIntHashMap} against a {@link HashMap}, with enough colliding keys
+ * that backward-shift deletion has to move entries, including across the end of the
+ * table.
+ */
+class IntIntHashMapTest {
+
+    @Test
+    void randomOperationsMatchAHashMap() {
+        Random random = new Random(42);
+        IntIntHashMap map = new IntIntHashMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            // a small key range keeps probe chains long and removals frequent
+            int key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? IntIntHashMap.MISSING : removed, map.remove(key));
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                Integer previous = expected.put(key, value);
+                assertEquals(previous == null ? IntIntHashMap.MISSING : previous, map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -300; key < 300; key++) {
+            assertEquals(expected.getOrDefault(key, IntIntHashMap.MISSING), map.get(key));
+        }
+    }
+
+    @Test
+    void removingFromAFullProbeChainKeepsEveryOtherKeyReachable() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 0; key < 64; key++) {
+            map.put(key, key);
+            keys.add(key);
+        }
+        // remove every other key, then check the survivors after each removal
+        for (int i = 0; i < keys.size(); i += 2) {
+            assertEquals(keys.get(i), map.remove(keys.get(i)));
+            for (int j = i + 1; j < keys.size(); j += 2) {
+                assertEquals(keys.get(j), map.get(keys.get(j)));
+            }
+        }
+        assertEquals(32, map.size());
+        assertEquals(IntIntHashMap.MISSING, map.remove(0));
+    }
+
+    @Test
+    void clearEmptiesTheMapAndItCanBeRefilled() {
+        IntIntHashMap map = new IntIntHashMap(16);
+        for (int key = 0; key < 100; key++) {
+            map.put(key, key * 2);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(IntIntHashMap.MISSING, map.get(7));
+        map.put(7, 1);
+        assertEquals(1, map.get(7));
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, -1));
+        assertEquals(0, map.size());
+    }
+}
@@ -0,0 +1,114 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link IntKeyedList} keeps insertion order, lookups, and positions right
+ * through removals and compaction, against a {@link LinkedHashMap}.
+ */
+class IntKeyedListTest {
+
+    private static void assertSameContents(Map<Integer, String> expected, IntKeyedList<String> list) {
+        List<String> values = new ArrayList<>(expected.values());
+        assertEquals(values, list.toList());
+        List<String> iterated = new ArrayList<>();
+        list.forEach(iterated::add);
+        assertEquals(values, iterated);
+        assertEquals(expected.size(), list.size());
+        int position = 0;
+        for (int key : expected.keySet()) {
+            assertEquals(position++, list.indexOf(key));
+            assertEquals(expected.get(key), list.get(key));
+        }
+    }
+
+    @Test
+    void randomOperationsKeepInsertionOrder() {
+        Random random = new Random(7);
+        IntKeyedList<String> list = new IntKeyedList<>();
+        Map<Integer, String> expected = new LinkedHashMap<>();
+        int nextKey = 0;
+        for (int step = 0; step < 20_000; step++) {
+            if (!expected.isEmpty() && random.nextInt(5) < 2) {
+                // remove from the front, the middle, or the back
+                List<Integer> keys = new ArrayList<>(expected.keySet());
+                int key = keys.get(random.nextInt(keys.size()));
+                assertEquals(expected.remove(key), list.remove(key));
+            } else {
+                int key = nextKey++;
+                String value = "v" + key;
+                assertTrue(list.add(key, value));
+                expected.put(key, value);
+            }
+            if (step % 1000 == 0) {
+                assertSameContents(expected, list);
+            }
+        }
+        assertSameContents(expected, list);
+    }
+
+    @Test
+    void keysAreUniqueAndRemovedKeysCanBeReused() {
+        IntKeyedList<String> list = new IntKeyedList<>();
+        assertTrue(list.add(1, "a"));
+        assertFalse(list.add(1, "b"));
+        assertEquals("a", list.get(1));
+        assertEquals("a", list.remove(1));
+        assertNull(list.remove(1));
+        assertNull(list.get(1));
+        assertEquals(-1, list.indexOf(1));
+        assertTrue(list.add(1, "b"));
+        assertEquals(List.of("b"), list.toList());
+    }
+
+    @Test
+    void compactionAfterRemovingMostElementsKeepsTheRest() {
+        IntKeyedList<String> list = new IntKeyedList<>();
+        Map<Integer, String> expected = new LinkedHashMap<>();
+        for (int key = 0; key < 1000; key++) {
+            list.add(key, "v" + key);
+            expected.put(key, "v" + key);
+        }
+        for (int key = 0; key < 1000; key++) {
+            if (key % 10 != 0) {
+                list.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertSameContents(expected, list);
+        // appends after compaction go after the survivors
+        list.add(5000, "last");
+        expected.put(5000, "last");
+        assertSameContents(expected, list);
+    }
+
+    @Test
+    void clearEmptiesTheList() {
+        IntKeyedList<String> list = new IntKeyedList<>();
+        for (int key = 0; key < 50; key++) {
+            list.add(key, "v" + key);
+        }
+        list.clear();
+        assertEquals(0, list.size());
+        assertFalse(list.containsKey(3));
+        Iterator<String> iterator = list.iterator();
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+        list.add(3, "again");
+        assertEquals(List.of("again"), list.toList());
+    }
+}
@@ -0,0 +1,165 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips every item configuration and the varint edge values through {@link ItemCodec}.
+ */
+class ItemCodecTest {
+
+    private static final int[] VARINTS = {
+            0, 1, 127, 128, 255, 16_383, 16_384, (1 << 21) - 1, 1 << 21, (1 << 28) - 1, 1 << 28,
+            Integer.MAX_VALUE, -1, Integer.MIN_VALUE
+    };
+
+    private static List<ItemConfig> allConfigs() {
+        List<ItemConfig> configs = new ArrayList<>();
+        for (int code = 0; code < DonutConfig.count(); code++) {
+            configs.add(DonutConfig.byCode(code));
+        }
+        for (int code = 0; code < CoffeeConfig.count(); code++) {
+            configs.add(CoffeeConfig.byCode(code));
+        }
+        for (int code = 0; code < SandwichConfig.count(); code++) {
+            configs.add(SandwichConfig.byCode(code));
+        }
+        return configs;
+    }
+
+    @Test
+    void everyConfigurationFitsInTheCodeByte() {
+        assertTrue(DonutConfig.count() <= ItemCodec.MAX_CODE + 1);
+        assertTrue(CoffeeConfig.count() <= ItemCodec.MAX_CODE + 1);
+        assertTrue(SandwichConfig.count() <= ItemCodec.MAX_CODE + 1);
+    }
+
+    @Test
+    void everyConfigurationRoundTrips() {
+        ByteBuffer buffer = ByteBuffer.allocate(ItemCodec.MAX_ITEM_BYTES);
+        for (ItemConfig config : allConfigs()) {
+            for (int quantity : new int[]{1, 127, 128, Integer.MAX_VALUE}) {
+                long cents = config.getUnitCents();
+                buffer.clear();
+                ItemCodec.writeLine(buffer, config, quantity, cents);
+                assertEquals(2 + ItemCodec.varintSize(quantity) + ItemCodec.varintSize((int) cents),
+                        buffer.position(), config.toString());
+                buffer.flip();
+                assertSame(config, ItemCodec.readConfig(buffer), config.toString());
+                assertEquals(quantity, ItemCodec.readVarint(buffer), config.toString());
+                assertEquals(cents, ItemCodec.readVarint(buffer), config.toString());
+                assertEquals(0, buffer.remaining(), config.toString());
+            }
+        }
+    }
+
+    @Test
+    void everyItemRoundTrips() {
+        ByteBuffer buffer = ByteBuffer.allocate(ItemCodec.MAX_ITEM_BYTES);
+        for (ItemConfig config : allConfigs()) {
+            MenuItem item = config.newItem(3);
+            buffer.clear();
+            ItemCodec.writeItem(buffer, item);
+            buffer.flip();
+            MenuItem read = ItemCodec.readItem(buffer);
+            assertSame(item.getClass(), read.getClass());
+            assertSame(config, read.getConfig());
+            assertEquals(3, read.getQuantity());
+            assertEquals(item.getUnitCents(), read.getUnitCents());
+            assertEquals(item, read);
+        }
+    }
+
+    @Test
+    void unitPriceSurvivesAPriceReload() throws IOException {
+        Order sold = new Order(1);
+        sold.add(DonutConfig.byCode(0).newItem(2));
+        long soldCents = DonutConfig.byCode(0).getUnitCents();
+        long subtotal = sold.getSubtotalCents();
+        ByteBuffer buffer = ByteBuffer.allocate(ItemCodec.orderBytes(sold));
+        ItemCodec.writeOrder(buffer, sold);
+        buffer.flip();
+
+        String prices = "version=" + (PriceCatalog.current().getVersion() + 1) + "\n"
+                + "donut.YEAST=9.99\ndonut.CAKE=9.99\ndonut.HOLE=9.99\ndonut.SEASONAL=9.99\n"
+                + "coffee.size.SHORT=2.39\ncoffee.size.TALL=2.99\ncoffee.size.GRANDE=3.59\ncoffee.size.VENTI=4.19\n"
+                + "coffee.addIn.WHIPPED_CREAM=0.25\ncoffee.addIn.VANILLA=0.25\ncoffee.addIn.TWO_PERCENT_MILK=0.25\n"
+                + "coffee.addIn.CARAMEL=0.25\ncoffee.addIn.MOCHA=0.25\n"
+                + "sandwich.protein.BEEF=12.99\nsandwich.protein.CHICKEN=10.99\nsandwich.protein.SALMON=14.99\n"
+                + "sandwich.extra.CHEESE=1.00\nsandwich.extra.LETTUCE=0.30\nsandwich.extra.TOMATOES=0.30\n"
+                + "sandwich.extra.ONIONS=0.30\n";
+        assertTrue(PriceCatalog.install(PriceCatalog.parse(
+                new ByteArrayInputStream(prices.getBytes(StandardCharsets.UTF_8)))));
+        assertEquals(999, DonutConfig.byCode(0).getUnitCents());
+
+        Order read = ItemCodec.readOrder(buffer);
+        assertEquals(soldCents, read.getItems().get(0).getUnitCents());
+        assertEquals(subtotal, read.getSubtotalCents());
+    }
+
+    @Test
+    void varintEdgeValuesRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        for (int value : VARINTS) {
+            buffer.clear();
+            ItemCodec.writeVarint(buffer, value);
+            assertEquals(ItemCodec.varintSize(value), buffer.position(), "size of " + value);
+            buffer.flip();
+            assertEquals(value, ItemCodec.readVarint(buffer));
+        }
+        assertEquals(1, ItemCodec.varintSize(127));
+        assertEquals(2, ItemCodec.varintSize(128));
+        assertEquals(5, ItemCodec.varintSize(Integer.MAX_VALUE));
+        assertEquals(5, ItemCodec.varintSize(-1));
+    }
+
+    @Test
+    void overlongVarintIsRejected() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{-1, -1, -1, -1, -1, 1});
+        assertThrows(IllegalArgumentException.class, () -> ItemCodec.readVarint(buffer));
+    }
+
+    @Test
+    void unknownConfigurationIsRejected() {
+        ByteBuffer kind = ByteBuffer.wrap(new byte[]{9, 0, 1});
+        assertThrows(IllegalArgumentException.class, () -> ItemCodec.readItem(kind));
+        ByteBuffer code = ByteBuffer.wrap(new byte[]{ItemConfig.DONUT, (byte) DonutConfig.count(), 1});
+        assertThrows(IllegalArgumentException.class, () -> ItemCodec.readItem(code));
+    }
+
+    @Test
+    void orderRoundTrips() {
+        Order order = new Order(Integer.MAX_VALUE);
+        order.setPlacedAt(1_700_000_000_123L);
+        for (ItemConfig config : allConfigs()) {
+            order.add(config.newItem(200));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(ItemCodec.orderBytes(order));
+        ItemCodec.writeOrder(buffer, order);
+        assertEquals(0, buffer.remaining());
+        buffer.flip();
+
+        Order read = ItemCodec.readOrder(buffer);
+        assertEquals(order.getOrderNumber(), read.getOrderNumber());
+        assertEquals(order.getPlacedAt(), read.getPlacedAt());
+        assertEquals(order.size(), read.size());
+        for (int i = 0; i < order.size(); i++) {
+            MenuItem expected = order.getItems().get(i);
+            MenuItem actual = read.getItems().get(i);
+            assertSame(expected.getConfig(), actual.getConfig());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+        }
+        assertEquals(order.getSubtotalCents(), read.getSubtotalCents());
+    }
+}
@@ -0,0 +1,41 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parses order bodies, and rejects bodies nested too deep, through {@link Json}.
+ */
+class JsonTest {
+
+    @Test
+    void parsesAnOrderBody() {
+        Object body = Json.parse("{\"items\":[{\"type\":\"donut\",\"quantity\":2}], \"note\":null}");
+        Map<?, ?> order = (Map<?, ?>) body;
+        List<?> items = (List<?>) order.get("items");
+        assertEquals(Map.of("type", "donut", "quantity", 2L), items.get(0));
+        assertEquals(null, order.get("note"));
+    }
+
+    @Test
+    void acceptsNestingUpToTheLimit() {
+        String text = "[".repeat(Json.MAX_DEPTH) + "]".repeat(Json.MAX_DEPTH);
+        Object value = Json.parse(text);
+        for (int depth = 1; depth < Json.MAX_DEPTH; depth++) {
+            value = ((List<?>) value).get(0);
+        }
+        assertEquals(List.of(), value);
+    }
+
+    @Test
+    void rejectsDeepNestingWithoutOverflowingTheStack() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("[".repeat(1_000_000)));
+        String objects = "{\"a\":".repeat(Json.MAX_DEPTH + 1) + "1" + "}".repeat(Json.MAX_DEPTH + 1);
+        assertThrows(IllegalArgumentException.class, () -> Json.parse(objects));
+    }
+}
@@ -0,0 +1,278 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routes orders through a {@link Kitchen}: station tasks, the backlog, cancelling
+ * queued and in-progress orders, and worker retries.
+ */
+class KitchenTest {
+
+    private static final DonutConfig DONUT = DonutConfig.byCode(0);
+    private static final CoffeeConfig COFFEE = CoffeeConfig.byCode(0);
+
+    private static Order order(int number, ItemConfig... configs) {
+        Order order = new Order(number);
+        for (ItemConfig config : configs) {
+            order.add(config.newItem(1));
+        }
+        return order;
+    }
+
+    /**
+     * Records what the kitchen reports.
+     */
+    private static final class Recorder implements Kitchen.Listener {
+        final List<Integer> started = new CopyOnWriteArrayList<>();
+        final List<Integer> ready = new CopyOnWriteArrayList<>();
+        final List<Kitchen.Task> failed = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void orderStarted(Order order) {
+            started.add(order.getOrderNumber());
+        }
+
+        @Override
+        public void orderReady(Order order) {
+            ready.add(order.getOrderNumber());
+        }
+
+        @Override
+        public void taskFailed(Kitchen.Task task, RuntimeException cause) {
+            failed.add(task);
+        }
+    }
+
+    @Test
+    void orderIsReadyOnceEveryStationHasCompletedItsTask() throws InterruptedException {
+        Kitchen kitchen = new Kitchen();
+        Recorder recorder = new Recorder();
+        kitchen.addListener(recorder);
+        Order order = order(1, DONUT, COFFEE, DONUT);
+        assertTrue(kitchen.submit(order));
+        assertFalse(kitchen.submit(order));
+
+        Kitchen.Task donuts = kitchen.take(Kitchen.Station.DONUT_CASE);
+        assertEquals(2, donuts.getItems().size());
+        assertEquals(List.of(1), recorder.started);
+        kitchen.complete(donuts);
+        assertEquals(List.of(), recorder.ready);
+
+        Kitchen.Task coffee = kitchen.take(Kitchen.Station.COFFEE_BAR);
+        kitchen.complete(coffee);
+        kitchen.complete(coffee);
+        assertEquals(List.of(1), recorder.ready);
+        assertEquals(List.of(1), recorder.started);
+        assertEquals(0, kitchen.getOpenOrders());
+        assertEquals(0, kitchen.getLoad(Kitchen.Station.COFFEE_BAR));
+    }
+
+    @Test
+    void fullStationHoldsOrdersInTheBacklogUntilItFreesUp() throws InterruptedException {
+        Kitchen kitchen = new Kitchen(1);
+        Recorder recorder = new Recorder();
+        kitchen.addListener(recorder);
+        kitchen.submit(order(1, DONUT));
+        // needs the free coffee bar too, but waits behind the donut case
+        kitchen.submit(order(2, COFFEE, DONUT));
+        kitchen.submit(order(3, COFFEE));
+
+        assertTrue(kitchen.isSaturated());
+        assertEquals(2, kitchen.getBacklog());
+        assertEquals(0, kitchen.getQueued(Kitchen.Station.COFFEE_BAR));
+
+        kitchen.complete(kitchen.take(Kitchen.Station.DONUT_CASE));
+        assertEquals(1, kitchen.getBacklog());
+        kitchen.complete(kitchen.take(Kitchen.Station.DONUT_CASE));
+        kitchen.complete(kitchen.take(Kitchen.Station.COFFEE_BAR));
+        kitchen.complete(kitchen.take(Kitchen.Station.COFFEE_BAR));
+
+        assertFalse(kitchen.isSaturated());
+        assertEquals(List.of(1, 2, 3), recorder.ready);
+    }
+
+    @Test
+    void cancellingAQueuedOrderDropsItsTasksAndFreesTheirSlots() throws InterruptedException {
+        Kitchen kitchen = new Kitchen(1);
+        Recorder recorder = new Recorder();
+        kitchen.addListener(recorder);
+        kitchen.submit(order(1, DONUT));
+        kitchen.submit(order(2, DONUT));
+
+        assertTrue(kitchen.cancel(1));
+        assertFalse(kitchen.cancel(1));
+        // the cancelled task is skipped and its slot goes to the backlogged order
+        Kitchen.Task task = kitchen.take(Kitchen.Station.DONUT_CASE);
+        assertEquals(2, task.getOrder().getOrderNumber());
+        kitchen.complete(task);
+
+        assertNull(kitchen.poll(Kitchen.Station.DONUT_CASE, 10, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(2), recorder.started);
+        assertEquals(List.of(2), recorder.ready);
+        assertEquals(0, kitchen.getLoad(Kitchen.Station.DONUT_CASE));
+    }
+
+    @Test
+    void cancellingAnOrderInProgressKeepsItFromBecomingReady() throws InterruptedException {
+        Kitchen kitchen = new Kitchen(1);
+        Recorder recorder = new Recorder();
+        kitchen.addListener(recorder);
+        kitchen.submit(order(1, DONUT));
+        Kitchen.Task task = kitchen.take(Kitchen.Station.DONUT_CASE);
+
+        assertTrue(kitchen.cancel(1));
+        assertEquals(1, kitchen.getLoad(Kitchen.Station.DONUT_CASE));
+        kitchen.complete(task);
+
+        assertEquals(List.of(), recorder.ready);
+        assertEquals(0, kitchen.getLoad(Kitchen.Station.DONUT_CASE));
+        assertFalse(kitchen.cancel(1));
+    }
+
+    @Test
+    void cancelledOrderIsNotSubmitted() {
+        Kitchen kitchen = new Kitchen();
+        Order order = order(1, DONUT);
+        order.advance(OrderStatus.PLACED, System.nanoTime());
+        order.advance(OrderStatus.CANCELLED, System.nanoTime());
+        assertFalse(kitchen.submit(order));
+        assertEquals(0, kitchen.getOpenOrders());
+    }
+
+    @Test
+    void workerRetriesAFailingTaskUntilItSucceeds() throws InterruptedException {
+        Kitchen kitchen = new Kitchen();
+        Recorder recorder = new Recorder();
+        CountDownLatch ready = new CountDownLatch(1);
+        kitchen.addListener(new Kitchen.Listener() {
+            @Override
+            public void orderStarted(Order order) {
+            }
+
+            @Override
+            public void orderReady(Order order) {
+                ready.countDown();
+            }
+        });
+        kitchen.addListener(recorder);
+        AtomicInteger attempts = new AtomicInteger();
+        kitchen.startWorkers(Kitchen.Station.DONUT_CASE, 1, task -> {
+            if (attempts.incrementAndGet() < Kitchen.MAX_ATTEMPTS) {
+                throw new IllegalStateException("fryer is not hot yet");
+            }
+        });
+        try {
+            kitchen.submit(order(1, DONUT));
+            assertTrue(ready.await(10, TimeUnit.SECONDS));
+        } finally {
+            kitchen.close();
+        }
+        assertEquals(Kitchen.MAX_ATTEMPTS, attempts.get());
+        assertEquals(List.of(), recorder.failed);
+        assertEquals(List.of(1), recorder.started);
+    }
+
+    @Test
+    void workerGivesUpOnATaskThatKeepsFailing() throws InterruptedException {
+        Kitchen kitchen = new Kitchen(1);
+        CountDownLatch failed = new CountDownLatch(1);
+        Recorder recorder = new Recorder();
+        kitchen.addListener(recorder);
+        kitchen.addListener(new Kitchen.Listener() {
+            @Override
+            public void orderStarted(Order order) {
+            }
+
+            @Override
+            public void orderReady(Order order) {
+            }
+
+            @Override
+            public void taskFailed(Kitchen.Task task, RuntimeException cause) {
+                failed.countDown();
+            }
+        });
+        AtomicInteger attempts = new AtomicInteger();
+        kitchen.startWorkers(Kitchen.Station.DONUT_CASE, 1, task -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("fryer is broken");
+        });
+        Order order = order(1, DONUT);
+        try {
+            kitchen.submit(order);
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+        } finally {
+            kitchen.close();
+        }
+        assertEquals(Kitchen.MAX_ATTEMPTS, attempts.get());
+        assertEquals(1, recorder.failed.size());
+        assertSame(order, recorder.failed.get(0).getOrder());
+        assertEquals(List.of(), recorder.ready);
+        assertEquals(0, kitchen.getOpenOrders());
+        assertEquals(0, kitchen.getLoad(Kitchen.Station.DONUT_CASE));
+    }
+
+    @Test
+    void everyOrderEndsUpEitherReadyOrCancelledWhenTheyRace() throws InterruptedException {
+        int orders = 2000;
+        Kitchen kitchen = new Kitchen(8);
+        Set<Integer> ready = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(orders);
+        kitchen.addListener(new Kitchen.Listener() {
+            @Override
+            public void orderStarted(Order order) {
+            }
+
+            @Override
+            public void orderReady(Order order) {
+                ready.add(order.getOrderNumber());
+                done.countDown();
+            }
+        });
+        kitchen.startWorkers(Kitchen.Station.DONUT_CASE, 2, task -> {
+        });
+        kitchen.startWorkers(Kitchen.Station.COFFEE_BAR, 2, task -> {
+        });
+        Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+        Thread canceller = new Thread(() -> {
+            for (int number = 1; number <= orders; number++) {
+                while (!kitchen.cancel(number) && !ready.contains(number)) {
+                    Thread.onSpinWait();
+                }
+                if (!ready.contains(number)) {
+                    cancelled.add(number);
+                    done.countDown();
+                }
+            }
+        });
+        try {
+            canceller.start();
+            for (int number = 1; number <= orders; number++) {
+                kitchen.submit(order(number, DONUT, COFFEE));
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            canceller.join();
+        } finally {
+            kitchen.close();
+        }
+        for (int number = 1; number <= orders; number++) {
+            assertTrue(ready.contains(number) != cancelled.contains(number), "order " + number);
+        }
+        assertEquals(0, kitchen.getOpenOrders());
+        assertFalse(kitchen.isSaturated());
+    }
+}
@@ -0,0 +1,181 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archives and restores orders through {@link OrderArchive} and
+ * {@link StoreOrders#archivePlacedBefore(long)}, and saves and loads archives.
+ */
+class OrderArchiveTest {
+
+    /** More than the initial capacity, so loading has to grow the columns. */
+    private static final int ORDERS = 1500;
+
+    private static Order order(int number) {
+        Order order = new Order(number);
+        order.setPlacedAt(1_700_000_000_000L + number);
+        order.add(DonutConfig.byCode(number % DonutConfig.count()).newItem(1 + number % 3));
+        order.add(CoffeeConfig.byCode(number % CoffeeConfig.count()).newItem(1));
+        if (number % 2 == 0) {
+            order.add(SandwichConfig.byCode(number % SandwichConfig.count()).newItem(2));
+        }
+        return order;
+    }
+
+    /**
+     * A dozen glazed donuts sold a cent below the current price.
+     */
+    private static MenuItem discountedDozen() {
+        MenuItem item = DonutConfig.of(DonutType.YEAST, DonutFlavor.GLAZED).newItem(12);
+        item.setUnitCents(item.getUnitCents() - 1);
+        return item;
+    }
+
+    private static OrderArchive filled() {
+        OrderArchive archive = new OrderArchive();
+        for (int number = 1; number <= ORDERS; number++) {
+            archive.add(order(number));
+        }
+        return archive;
+    }
+
+    private static byte[] save(OrderArchive archive) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        archive.writeTo(Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static void load(OrderArchive archive, byte[] saved) throws IOException {
+        archive.readFrom(Channels.newChannel(new ByteArrayInputStream(saved)));
+    }
+
+    @Test
+    void restoredOrderMatchesTheArchivedOne() {
+        Order order = order(2);
+        order.add(discountedDozen());
+        OrderArchive archive = new OrderArchive();
+        assertTrue(archive.add(order));
+
+        Order restored = archive.restore(2);
+        assertEquals(order.getPlacedAt(), restored.getPlacedAt());
+        assertEquals(order.getItems(), restored.getItems());
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(order.getItems().get(i).getQuantity(), restored.getItems().get(i).getQuantity());
+            // the price it was sold at, not the current one
+            assertEquals(order.getItems().get(i).getUnitCents(), restored.getItems().get(i).getUnitCents());
+        }
+        assertEquals(order.getSubtotalCents(), restored.getSubtotalCents());
+        assertEquals(order.getSubtotalCents(), archive.getSubtotalCents(2));
+        assertNull(archive.restore(3));
+        assertFalse(archive.contains(3));
+    }
+
+    @Test
+    void scansAndSumsReadTheArchivedColumns() {
+        OrderArchive archive = filled();
+        long revenue = 0;
+        long firstHundred = 0;
+        long glazedUnits = 0;
+        DonutConfig glazed = DonutConfig.byCode(0);
+        for (int number = 1; number <= ORDERS; number++) {
+            Order order = order(number);
+            revenue += order.getSubtotalCents();
+            if (number <= 100) {
+                firstHundred += order.getSubtotalCents();
+            }
+            for (MenuItem item : order.getItems()) {
+                if (item.getConfig() == glazed) {
+                    glazedUnits += item.getQuantity();
+                }
+            }
+        }
+        assertEquals(revenue, archive.getRevenueCents());
+        assertEquals(firstHundred, archive.getRevenueCents(order(1).getPlacedAt(), order(101).getPlacedAt()));
+        assertEquals(glazedUnits, archive.getUnits(glazed));
+
+        List<Integer> numbers = new ArrayList<>();
+        long[] lineCents = new long[1];
+        archive.forEachOrder((number, placedAt, lineCount, subtotal) -> numbers.add(number));
+        archive.forEachLine((number, placedAt, config, quantity, cents) -> lineCents[0] += cents);
+        assertEquals(ORDERS, numbers.size());
+        assertEquals(1, numbers.get(0));
+        assertEquals(ORDERS, numbers.get(ORDERS - 1));
+        assertEquals(revenue, lineCents[0]);
+    }
+
+    @Test
+    void storeOrdersMovesOldOrdersIntoTheArchive() {
+        StoreOrders store = new StoreOrders();
+        Order old = order(1);
+        Order recent = order(2);
+        store.add(old);
+        store.add(recent);
+
+        assertEquals(1, store.archivePlacedBefore(recent.getPlacedAt()));
+        assertEquals(List.of(recent), store.getOrders());
+        assertNull(store.findStored(1));
+        Order restored = store.findByNumber(1);
+        assertEquals(old.getSubtotalCents(), restored.getSubtotalCents());
+        assertSame(recent, store.findByNumber(2));
+        // archived orders are closed
+        assertNull(store.cancel(1));
+        assertEquals(0, store.archivePlacedBefore(recent.getPlacedAt()));
+    }
+
+    @Test
+    void loadedArchiveMatchesTheSavedOne() throws IOException {
+        OrderArchive archive = filled();
+        OrderArchive loaded = new OrderArchive();
+        load(loaded, save(archive));
+
+        assertEquals(archive.size(), loaded.size());
+        assertEquals(archive.lineCount(), loaded.lineCount());
+        assertEquals(archive.getRevenueCents(), loaded.getRevenueCents());
+        for (int number = 1; number <= ORDERS; number++) {
+            Order saved = archive.restore(number);
+            Order restored = loaded.restore(number);
+            assertEquals(saved.getPlacedAt(), restored.getPlacedAt());
+            assertEquals(saved.getSubtotalCents(), restored.getSubtotalCents());
+            assertEquals(saved.getItems(), restored.getItems());
+        }
+        // the loaded archive keeps taking orders
+        assertTrue(loaded.add(order(ORDERS + 1)));
+        assertFalse(loaded.add(order(1)));
+    }
+
+    @Test
+    void damagedSaveIsRefusedAndLeavesTheArchiveEmpty() throws IOException {
+        byte[] saved = save(filled());
+        saved[saved.length / 2] ^= 0x40;
+        OrderArchive loaded = new OrderArchive();
+        assertThrows(IOException.class, () -> load(loaded, saved));
+        assertEquals(0, loaded.size());
+        assertFalse(loaded.contains(1));
+
+        byte[] cut = Arrays.copyOf(save(filled()), 100);
+        assertThrows(IOException.class, () -> load(new OrderArchive(), cut));
+    }
+
+    @Test
+    void onlyAnEmptyArchiveCanBeLoaded() throws IOException {
+        byte[] saved = save(filled());
+        OrderArchive archive = new OrderArchive();
+        archive.add(order(1));
+        assertThrows(IllegalStateException.class, () -> load(archive, saved));
+    }
+}
@@ -0,0 +1,247 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recovers journals with damaged records through {@link OrderJournal#open}, checks
+ * that only one journal is open on a directory at a time, and that checkpoints delete
+ * the segments of archived days.
+ */
+class OrderJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final int HEADER = 8;
+    /** Offset of the first item's kind tag within a placed record's payload. */
+    private static final int FIRST_ITEM = 1 + 8 + 4 + 4;
+    /** Far enough apart to land on different local days in any zone. */
+    private static final long TWO_DAYS = TimeUnit.DAYS.toMillis(2);
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Collects what a replay reports.
+     */
+    private static final class Recorder implements OrderJournal.Visitor {
+        final List<Integer> placed = new ArrayList<>();
+        final List<Integer> cancelled = new ArrayList<>();
+        final List<Integer> skipped = new ArrayList<>();
+
+        @Override
+        public void placed(Order order, long timestamp) {
+            placed.add(order.getOrderNumber());
+        }
+
+        @Override
+        public void cancelled(int orderNumber, long timestamp) {
+            cancelled.add(orderNumber);
+        }
+
+        @Override
+        public void skipped(int orderNumber, long timestamp, RuntimeException cause) {
+            skipped.add(orderNumber);
+        }
+    }
+
+    private static Order order(int number) {
+        return order(number, 1_700_000_000_000L + number);
+    }
+
+    private static Order order(int number, long placedAt) {
+        Order order = new Order(number);
+        order.setPlacedAt(placedAt);
+        order.add(DonutConfig.byCode(0).newItem(number));
+        return order;
+    }
+
+    private Recorder reopen() throws IOException {
+        Recorder recorder = new Recorder();
+        OrderJournal.open(dir, SEGMENT_SIZE, recorder).close();
+        return recorder;
+    }
+
+    private Path segment(int index) {
+        return dir.resolve(String.format("journal-%06d.log", index));
+    }
+
+    private MappedByteBuffer mapFirstSegment(FileChannel channel) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+    }
+
+    private FileChannel openFirstSegment() throws IOException {
+        return FileChannel.open(dir.resolve("journal-000001.log"), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Test
+    void replaysEveryRecordInOrder() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            journal.appendPlaced(order(1));
+            journal.appendPlaced(List.of(order(2), order(3)));
+            journal.appendCancelled(2);
+        }
+        Recorder recorder = reopen();
+        assertEquals(List.of(1, 2, 3), recorder.placed);
+        assertEquals(List.of(2), recorder.cancelled);
+        assertEquals(List.of(), recorder.skipped);
+    }
+
+    @Test
+    void undecodableRecordInTheMiddleIsSkippedAndKept() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            journal.appendPlaced(order(1));
+            journal.appendPlaced(order(2));
+            journal.appendPlaced(order(3));
+            journal.appendCancelled(3);
+        }
+        try (FileChannel channel = openFirstSegment()) {
+            MappedByteBuffer segment = mapFirstSegment(channel);
+            // give the second record an unknown item kind and a checksum that still matches
+            int second = HEADER + segment.getInt(0);
+            int length = segment.getInt(second);
+            segment.put(second + HEADER + FIRST_ITEM, (byte) 9);
+            CRC32 crc = new CRC32();
+            crc.update(segment.slice(second + HEADER, length));
+            segment.putInt(second + Integer.BYTES, (int) crc.getValue());
+            segment.force();
+        }
+
+        Recorder recorder = new Recorder();
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, recorder)) {
+            assertEquals(List.of(1, 3), recorder.placed);
+            assertEquals(List.of(3), recorder.cancelled);
+            assertEquals(List.of(2), recorder.skipped);
+            journal.appendPlaced(order(4));
+        }
+
+        // nothing after the bad record was truncated, and it is still reported
+        Recorder again = reopen();
+        assertEquals(List.of(1, 3, 4), again.placed);
+        assertEquals(List.of(3), again.cancelled);
+        assertEquals(List.of(2), again.skipped);
+    }
+
+    @Test
+    void tornTailIsDiscarded() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            journal.appendPlaced(order(1));
+            journal.appendPlaced(order(2));
+        }
+        try (FileChannel channel = openFirstSegment()) {
+            MappedByteBuffer segment = mapFirstSegment(channel);
+            // flip a payload byte of the last record, as a write cut short would
+            int second = HEADER + segment.getInt(0);
+            int tail = second + HEADER + FIRST_ITEM;
+            segment.put(tail, (byte) (segment.get(tail) ^ 0x7F));
+            segment.force();
+        }
+
+        Recorder recorder = new Recorder();
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, recorder)) {
+            assertEquals(List.of(1), recorder.placed);
+            journal.appendPlaced(order(3));
+        }
+        assertEquals(List.of(1, 3), reopen().placed);
+    }
+
+    @Test
+    void secondOpenFailsWhileTheJournalIsOpen() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            journal.appendPlaced(order(1));
+            assertThrows(OrderJournal.LockedException.class,
+                    () -> OrderJournal.open(dir, SEGMENT_SIZE, new Recorder()));
+        }
+        // released on close
+        assertEquals(List.of(1), reopen().placed);
+    }
+
+    @Test
+    void recordsRollIntoNewSegments() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            for (int number = 1; number <= 300; number++) {
+                journal.appendPlaced(order(number));
+                numbers.add(number);
+            }
+        }
+        assertEquals(numbers, reopen().placed);
+    }
+
+    @Test
+    void eachDayStartsANewSegment() throws IOException {
+        long day = 1_700_000_000_000L;
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            journal.appendPlaced(order(1, day));
+            journal.appendPlaced(order(2, day + 1));
+            journal.appendPlaced(order(3, day + TWO_DAYS));
+        }
+        assertTrue(Files.exists(segment(1)));
+        assertTrue(Files.exists(segment(2)));
+        assertFalse(Files.exists(segment(3)));
+
+        // a reopened journal keeps appending the same day to the last segment
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, new Recorder())) {
+            journal.appendPlaced(order(4, day + TWO_DAYS + 1));
+        }
+        assertFalse(Files.exists(segment(3)));
+        assertEquals(List.of(1, 2, 3, 4), reopen().placed);
+    }
+
+    @Test
+    void checkpointDeletesArchivedSegmentsAndReopenLoadsTheArchive() throws IOException {
+        long day = 1_700_000_000_000L;
+        OrderArchive archive = new OrderArchive();
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, archive, new Recorder())) {
+            for (int number = 1; number <= 3; number++) {
+                Order order = order(number, day + (number - 1) * TWO_DAYS);
+                journal.appendPlaced(order);
+                if (number < 3) {
+                    archive.add(order);
+                }
+            }
+            assertEquals(2, journal.checkpoint(archive, day + 2 * TWO_DAYS));
+            // the current segment is kept even once its day is over
+            assertEquals(0, journal.checkpoint(archive, day + 3 * TWO_DAYS));
+        }
+        assertFalse(Files.exists(segment(1)));
+        assertFalse(Files.exists(segment(2)));
+        assertTrue(Files.exists(segment(3)));
+
+        OrderArchive loaded = new OrderArchive();
+        Recorder recorder = new Recorder();
+        OrderJournal.open(dir, SEGMENT_SIZE, loaded, recorder).close();
+        assertEquals(List.of(3), recorder.placed);
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.contains(1));
+        assertTrue(loaded.contains(2));
+        assertEquals(archive.getRevenueCents(), loaded.getRevenueCents());
+    }
+
+    @Test
+    void checkpointKeepsSegmentsWithRecentRecords() throws IOException {
+        long day = 1_700_000_000_000L;
+        OrderArchive archive = new OrderArchive();
+        try (OrderJournal journal = OrderJournal.open(dir, SEGMENT_SIZE, archive, new Recorder())) {
+            journal.appendPlaced(order(1, day));
+            journal.appendPlaced(order(2, day + TWO_DAYS));
+            assertEquals(0, journal.checkpoint(archive, day));
+        }
+        assertEquals(List.of(1, 2), reopen().placed);
+    }
+}
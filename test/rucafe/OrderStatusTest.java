@@ -0,0 +1,136 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Moves orders through their {@link OrderStatus}es, on their own and through
+ * {@link StoreOrders}, checking the allowed moves, the time stamps, and the status
+ * indexes.
+ */
+class OrderStatusTest {
+
+    private static Order order(int number) {
+        Order order = new Order(number);
+        order.add(DonutConfig.byCode(0).newItem(1));
+        return order;
+    }
+
+    @Test
+    void onlyForwardMovesAndCancellingAnOpenOrderAreAllowed() {
+        for (OrderStatus from : OrderStatus.values()) {
+            Set<OrderStatus> allowed = EnumSet.noneOf(OrderStatus.class);
+            for (OrderStatus to : OrderStatus.values()) {
+                if (from.canAdvanceTo(to)) {
+                    allowed.add(to);
+                }
+            }
+            Set<OrderStatus> expected;
+            switch (from) {
+                case NEW:
+                    expected = EnumSet.of(OrderStatus.PLACED);
+                    break;
+                case PLACED:
+                    expected = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY, OrderStatus.CANCELLED);
+                    break;
+                case IN_PROGRESS:
+                    expected = EnumSet.of(OrderStatus.READY, OrderStatus.CANCELLED);
+                    break;
+                case READY:
+                    expected = EnumSet.of(OrderStatus.PICKED_UP, OrderStatus.CANCELLED);
+                    break;
+                case PICKED_UP:
+                    expected = EnumSet.of(OrderStatus.CANCELLED);
+                    break;
+                default:
+                    expected = EnumSet.noneOf(OrderStatus.class);
+                    break;
+            }
+            assertEquals(expected, allowed, "from " + from);
+        }
+    }
+
+    @Test
+    void everyMoveIsStampedAndTimesAreMeasuredBetweenStamps() {
+        Order order = order(1);
+        assertEquals(OrderStatus.NEW, order.getStatus());
+        assertEquals(-1, order.getWaitNanos());
+        assertFalse(order.advance(OrderStatus.READY, 5));
+
+        assertTrue(order.advance(OrderStatus.PLACED, 10));
+        assertTrue(order.advance(OrderStatus.IN_PROGRESS, 25));
+        assertEquals(-1, order.getPrepNanos());
+        assertTrue(order.advance(OrderStatus.READY, 65));
+        assertFalse(order.advance(OrderStatus.IN_PROGRESS, 70));
+
+        assertEquals(OrderStatus.READY, order.getStatus());
+        assertEquals(10, order.getStatusNanos(OrderStatus.PLACED));
+        assertEquals(15, order.getWaitNanos());
+        assertEquals(40, order.getPrepNanos());
+        assertEquals(0, order.getStatusNanos(OrderStatus.PICKED_UP));
+    }
+
+    @Test
+    void readyStraightFromPlacedCountsAsStartedAtTheSameMoment() {
+        Order order = order(1);
+        order.advance(OrderStatus.PLACED, 10);
+        order.advance(OrderStatus.READY, 30);
+        assertEquals(30, order.getStatusNanos(OrderStatus.IN_PROGRESS));
+        assertEquals(20, order.getWaitNanos());
+        assertEquals(0, order.getPrepNanos());
+    }
+
+    @Test
+    void storeKeepsTheStatusIndexesAndLatencyWindowsInStep() {
+        StoreOrders store = new StoreOrders();
+        List<String> changes = new ArrayList<>();
+        store.addListener(new StoreOrders.Listener() {
+            @Override
+            public void orderAdded(Order order) {
+            }
+
+            @Override
+            public void orderRemoved(Order order) {
+                changes.add("removed " + order.getOrderNumber());
+            }
+
+            @Override
+            public void orderStatusChanged(Order order, OrderStatus previous) {
+                changes.add(order.getOrderNumber() + " " + previous + "->" + order.getStatus());
+            }
+        });
+        for (int number = 1; number <= 3; number++) {
+            store.add(order(number));
+        }
+        assertEquals(3, store.count(OrderStatus.PLACED));
+
+        assertTrue(store.advance(2, OrderStatus.IN_PROGRESS));
+        assertTrue(store.advance(3, OrderStatus.READY));
+        assertFalse(store.advance(1, OrderStatus.PICKED_UP));
+        assertFalse(store.advance(4, OrderStatus.READY));
+        assertEquals(1, store.count(OrderStatus.PLACED));
+        assertEquals(1, store.count(OrderStatus.IN_PROGRESS));
+        assertEquals(List.of(store.findStored(3)), store.getOrders(OrderStatus.READY));
+        assertEquals(2, store.getWaitTimes().size());
+        assertEquals(1, store.getPrepTimes().size());
+
+        assertTrue(store.advance(2, OrderStatus.READY));
+        assertEquals(2, store.getPrepTimes().size());
+        // listed in insertion order, whatever order they became ready in
+        assertEquals(List.of(store.findStored(2), store.findStored(3)), store.getOrders(OrderStatus.READY));
+
+        store.cancel(3);
+        assertEquals(1, store.count(OrderStatus.READY));
+        assertEquals(0, store.count(OrderStatus.CANCELLED));
+        assertEquals(List.of("2 PLACED->IN_PROGRESS", "3 PLACED->READY", "2 IN_PROGRESS->READY",
+                "3 READY->CANCELLED", "removed 3"), changes);
+    }
+}
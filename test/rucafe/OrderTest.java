@@ -0,0 +1,269 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Coalesces equal items in an {@link Order}, keeps its running subtotal in step, and
+ * looks lines up and removes them by line id.
+ */
+class OrderTest {
+
+    private static final DonutConfig GLAZED = DonutConfig.of(DonutType.YEAST, DonutFlavor.GLAZED);
+    private static final DonutConfig JELLY = DonutConfig.of(DonutType.YEAST, DonutFlavor.JELLY);
+
+    private static long subtotalOf(Order order) {
+        long cents = 0;
+        for (MenuItem item : order.getItems()) {
+            cents += item.priceCents();
+        }
+        return cents;
+    }
+
+    /**
+     * Collects listener calls as "added 0", "removed 1", "updated 0".
+     */
+    private static List<String> record(Order order) {
+        List<String> events = new ArrayList<>();
+        order.addListener(new Order.Listener() {
+            @Override
+            public void lineAdded(int index, MenuItem line) {
+                events.add("added " + index);
+            }
+
+            @Override
+            public void lineRemoved(int index, MenuItem line) {
+                events.add("removed " + index);
+            }
+
+            @Override
+            public void lineUpdated(int index, MenuItem line) {
+                events.add("updated " + index);
+            }
+        });
+        return events;
+    }
+
+    @Test
+    void equalItemsMergeIntoOneLine() {
+        Order order = new Order(1, true);
+        Donut first = GLAZED.newItem(2);
+        assertTrue(order.add(first));
+        assertTrue(order.add(GLAZED.newItem(3)));
+        assertTrue(order.add(JELLY.newItem(1)));
+
+        assertEquals(2, order.size());
+        assertSame(first, order.getItems().get(0));
+        assertEquals(5, first.getQuantity());
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+    }
+
+    @Test
+    void ordersThatDoNotCoalesceKeepEveryItem() {
+        Order order = new Order(1);
+        order.add(GLAZED.newItem(2));
+        order.add(GLAZED.newItem(3));
+        assertEquals(2, order.size());
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+    }
+
+    @Test
+    void removingAnEqualItemTakesItsQuantityOff() {
+        Order order = new Order(1, true);
+        Donut line = GLAZED.newItem(5);
+        order.add(line);
+
+        assertTrue(order.remove(GLAZED.newItem(2)));
+        assertEquals(3, line.getQuantity());
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+
+        // taking off at least what is left drops the line
+        assertTrue(order.remove(GLAZED.newItem(3)));
+        assertEquals(0, order.size());
+        assertEquals(0, order.getSubtotalCents());
+        assertFalse(order.remove(GLAZED.newItem(1)));
+
+        // a new equal item starts a fresh line
+        Donut again = GLAZED.newItem(1);
+        order.add(again);
+        assertSame(again, order.getItems().get(0));
+    }
+
+    @Test
+    void removingTheLineItselfDropsTheWholeLine() {
+        Order order = new Order(1, true);
+        Donut line = GLAZED.newItem(2);
+        order.add(line);
+        order.add(GLAZED.newItem(4));
+
+        assertTrue(order.remove(line));
+        assertEquals(0, order.size());
+        assertEquals(0, order.getSubtotalCents());
+    }
+
+    @Test
+    void changingALineToAnotherLinesOptionsMergesThem() {
+        Order order = new Order(1, true);
+        Donut glazed = GLAZED.newItem(2);
+        Donut jelly = JELLY.newItem(3);
+        order.add(glazed);
+        order.add(jelly);
+
+        jelly.setFlavor(DonutFlavor.GLAZED);
+        assertEquals(List.of(glazed), order.getItems());
+        assertEquals(5, glazed.getQuantity());
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+
+        // the merged line's old options are free again
+        order.add(JELLY.newItem(1));
+        assertEquals(2, order.size());
+    }
+
+    @Test
+    void changingALineToNewOptionsReindexesIt() {
+        Order order = new Order(1, true);
+        Donut line = GLAZED.newItem(2);
+        order.add(line);
+
+        line.setFlavor(DonutFlavor.JELLY);
+        order.add(JELLY.newItem(1));
+        order.add(GLAZED.newItem(4));
+
+        assertEquals(2, order.size());
+        assertEquals(3, line.getQuantity());
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+    }
+
+    @Test
+    void anItemPricedDifferentlyStartsItsOwnLine() {
+        Order order = new Order(1, true);
+        Donut line = GLAZED.newItem(1);
+        order.add(line);
+        Donut repriced = GLAZED.newItem(1);
+        repriced.setUnitCents(line.getUnitCents() + 10);
+        order.add(repriced);
+        // later items at the new price go to the newest line
+        Donut later = GLAZED.newItem(1);
+        later.setUnitCents(repriced.getUnitCents());
+        order.add(later);
+
+        assertEquals(2, order.size());
+        assertEquals(1, line.getQuantity());
+        assertEquals(2, repriced.getQuantity());
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+    }
+
+    @Test
+    void mergeThatWouldOverflowIsRejected() {
+        Order order = new Order(1, true);
+        Donut line = GLAZED.newItem(Integer.MAX_VALUE);
+        order.add(line);
+        long subtotal = order.getSubtotalCents();
+
+        assertThrows(IllegalArgumentException.class, () -> order.add(GLAZED.newItem(1)));
+        Donut jelly = JELLY.newItem(1);
+        order.add(jelly);
+        assertThrows(IllegalArgumentException.class, () -> jelly.setFlavor(DonutFlavor.GLAZED));
+
+        assertEquals(Integer.MAX_VALUE, line.getQuantity());
+        assertEquals(DonutFlavor.JELLY, jelly.getFlavor());
+        assertEquals(subtotal + jelly.priceCents(), order.getSubtotalCents());
+    }
+
+    @Test
+    void listenersSeeMergesAsUpdates() {
+        Order order = new Order(1, true);
+        List<String> events = record(order);
+        Donut glazed = GLAZED.newItem(1);
+        order.add(glazed);
+        order.add(JELLY.newItem(1));
+        order.add(GLAZED.newItem(1));
+        order.remove(GLAZED.newItem(2));
+
+        assertEquals(List.of("added 0", "added 1", "updated 0", "removed 0"), events);
+    }
+
+    @Test
+    void anItemCanOnlyBeInOneOrder() {
+        Donut item = GLAZED.newItem(1);
+        Order first = new Order(1, true);
+        Order second = new Order(2, true);
+        assertTrue(first.add(item));
+        assertFalse(second.add(item));
+        assertFalse(first.add("not an item"));
+    }
+
+    @Test
+    void lineIdsAreUniqueAndStableUntilRemoved() {
+        Order order = new Order(1);
+        List<MenuItem> added = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            MenuItem item = DonutConfig.byCode(i % DonutConfig.count()).newItem(1);
+            order.add(item);
+            added.add(item);
+        }
+        for (int i = 0; i < 100; i += 3) {
+            MenuItem item = added.get(i);
+            assertSame(item, order.removeLine(item.getLineId()));
+            assertEquals(0, item.getLineId());
+        }
+        for (int i = 0; i < 100; i++) {
+            MenuItem item = added.get(i);
+            if (i % 3 != 0) {
+                assertSame(item, order.getLine(item.getLineId()));
+            }
+        }
+        // ids are not handed out again after their line is removed
+        MenuItem next = GLAZED.newItem(1);
+        order.add(next);
+        for (MenuItem item : added) {
+            assertNotEquals(item.getLineId(), next.getLineId());
+        }
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+    }
+
+    @Test
+    void removeLineKeepsTheOtherLinesInOrder() {
+        Order order = new Order(1);
+        Donut first = GLAZED.newItem(1);
+        Donut second = JELLY.newItem(1);
+        Donut third = GLAZED.newItem(2);
+        order.add(first);
+        order.add(second);
+        order.add(third);
+        List<String> events = record(order);
+
+        assertSame(second, order.removeLine(second.getLineId()));
+        assertEquals(List.of(first, third), order.getItems());
+        assertEquals(List.of("removed 1"), events);
+        assertNull(order.removeLine(second.getLineId()));
+        assertNull(order.getLine(second.getLineId()));
+        assertEquals(subtotalOf(order), order.getSubtotalCents());
+
+        third.setQuantity(5);
+        assertEquals(List.of("removed 1", "updated 1"), events);
+    }
+
+    @Test
+    void removeLineOfACoalescingOrderFreesItsOptions() {
+        Order order = new Order(1, true);
+        Donut line = GLAZED.newItem(2);
+        order.add(line);
+        order.removeLine(line.getLineId());
+
+        Donut next = GLAZED.newItem(1);
+        order.add(next);
+        assertEquals(List.of(next), order.getItems());
+        assertEquals(1, next.getQuantity());
+    }
+}
@@ -0,0 +1,147 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Partitions orders by store and day in a {@link StoreNetwork}, summarizes them, and
+ * drops old days while orders are still being added.
+ */
+class StoreNetworkTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+    private static final LocalDate YESTERDAY = TODAY.minusDays(1);
+    private static final DonutConfig DONUT = DonutConfig.byCode(0);
+    private static final CoffeeConfig COFFEE = CoffeeConfig.byCode(0);
+
+    private static Order order(int number, LocalDate day, ItemConfig config, int quantity) {
+        Order order = new Order(number);
+        order.setPlacedAt(day.atTime(12, 0).toInstant(ZoneOffset.UTC).toEpochMilli() + number);
+        order.add(config.newItem(quantity));
+        return order;
+    }
+
+    @Test
+    void ordersArePartitionedByStoreAndDay() {
+        StoreNetwork network = new StoreNetwork(UTC);
+        assertTrue(network.add("north", order(1, TODAY, DONUT, 2)));
+        // numbers only need to be unique within a store
+        assertTrue(network.add("south", order(1, TODAY, DONUT, 3)));
+        assertTrue(network.add("north", order(1, YESTERDAY, COFFEE, 1)));
+        assertFalse(network.add("north", order(1, TODAY, COFFEE, 1)));
+
+        assertEquals(1, network.getPartition("north", TODAY).size());
+        assertEquals(1, network.getPartition("north", YESTERDAY).size());
+        assertNull(network.getPartition("south", YESTERDAY));
+        assertEquals(3, network.getPartitions().size());
+    }
+
+    @Test
+    void summariesAddUpAcrossStoresAndDays() {
+        StoreNetwork network = new StoreNetwork(UTC);
+        StoreOrders home = new StoreOrders();
+        network.register("home", home);
+        home.add(order(1, TODAY, DONUT, 4));
+        long expectedRevenue = home.findStored(1).getSubtotalCents();
+        // enough orders to split into several fork-join segments
+        for (int number = 1; number <= 10_000; number++) {
+            Order order = order(number, number % 2 == 0 ? TODAY : YESTERDAY, DONUT, 1);
+            expectedRevenue += order.getSubtotalCents();
+            network.add("north", order);
+        }
+
+        StoreNetwork.Summary all = network.summarize();
+        assertEquals(10_001, all.getOrderCount());
+        assertEquals(expectedRevenue, all.getRevenueCents());
+        assertEquals(10_004, all.getUnits(DONUT));
+        assertEquals(List.of(DONUT), all.getTopItems(5));
+
+        Map<String, StoreNetwork.Summary> byStore = network.summarizeByStore(key -> true);
+        assertEquals(1, byStore.get("home").getOrderCount());
+        assertEquals(10_000, byStore.get("north").getOrderCount());
+        assertEquals(5_000, network.summarize(key -> YESTERDAY.equals(key.getDay())).getOrderCount());
+    }
+
+    @Test
+    void droppingOldDaysKeepsTodayAndRegisteredStores() {
+        StoreNetwork network = new StoreNetwork(UTC);
+        network.register("home", new StoreOrders());
+        network.add("north", order(1, YESTERDAY.minusDays(1), DONUT, 1));
+        network.add("north", order(2, YESTERDAY, DONUT, 1));
+        network.add("north", order(3, TODAY, DONUT, 1));
+
+        assertEquals(2, network.dropDaysBefore(TODAY));
+        assertEquals(0, network.dropDaysBefore(TODAY));
+        assertNotNull(network.getPartition("home", null));
+        assertNotNull(network.getPartition("north", TODAY));
+        assertNull(network.getPartition("north", YESTERDAY));
+
+        // a late order for a dropped day starts a new partition
+        assertTrue(network.add("north", order(2, YESTERDAY, DONUT, 1)));
+        assertEquals(1, network.getPartition("north", YESTERDAY).size());
+    }
+
+    @Test
+    void addsForKeptDaysAreNeverLostWhileOldDaysAreDropped() throws InterruptedException {
+        StoreNetwork network = new StoreNetwork(UTC);
+        int perDay = 20_000;
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread adder = new Thread(() -> {
+            awaitQuietly(start);
+            for (int number = 1; number <= perDay; number++) {
+                if (!network.add("north", order(number, TODAY, DONUT, 1))
+                        | !network.add("north", order(number, YESTERDAY, DONUT, 1))) {
+                    refused.incrementAndGet();
+                }
+            }
+        });
+        AtomicInteger dropped = new AtomicInteger();
+        Thread dropper = new Thread(() -> {
+            awaitQuietly(start);
+            while (adder.isAlive()) {
+                dropped.addAndGet(network.dropDaysBefore(TODAY));
+                network.summarize();
+            }
+        });
+        adder.start();
+        dropper.start();
+        start.countDown();
+        adder.join();
+        dropper.join();
+
+        assertEquals(0, refused.get());
+        assertEquals(perDay, network.getPartition("north", TODAY).size());
+        StoreOrders yesterday = network.getPartition("north", YESTERDAY);
+        int left = yesterday == null ? 0 : yesterday.size();
+        assertTrue(left <= perDay);
+        if (dropped.get() > 0 && left > 0) {
+            // what is left was added after the last drop, so it ends with the last order
+            List<Order> orders = yesterday.getOrders();
+            assertEquals(perDay, orders.get(orders.size() - 1).getOrderNumber());
+            assertEquals(perDay - left + 1, orders.get(0).getOrderNumber());
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
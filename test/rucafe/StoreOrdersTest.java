@@ -0,0 +1,202 @@
+package rucafe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Adds, cancels, and lists orders in {@link StoreOrders}, from one thread and from
+ * many, and checks that the stripes merge back into insertion order.
+ */
+class StoreOrdersTest {
+
+    private static Order order(int number) {
+        Order order = new Order(number);
+        order.setPlacedAt(1_700_000_000_000L + number);
+        order.add(DonutConfig.byCode(number % DonutConfig.count()).newItem(1));
+        return order;
+    }
+
+    private static List<Integer> numbers(List<Order> orders) {
+        List<Integer> numbers = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            numbers.add(order.getOrderNumber());
+        }
+        return numbers;
+    }
+
+    @Test
+    void ordersListInInsertionOrderAcrossStripes() {
+        List<Integer> inserted = new ArrayList<>();
+        for (int number = 1; number <= 500; number++) {
+            inserted.add(number);
+        }
+        Collections.shuffle(inserted, new Random(3));
+        StoreOrders store = new StoreOrders();
+        for (int number : inserted) {
+            assertTrue(store.add(order(number)));
+        }
+        assertEquals(inserted, numbers(store.getOrders()));
+        assertEquals(500, store.size());
+    }
+
+    @Test
+    void snapshotIsReusedUntilTheStoreChanges() {
+        StoreOrders store = new StoreOrders();
+        store.add(order(1));
+        List<Order> first = store.getOrders();
+        long version = store.getVersion();
+        assertSame(first, store.getOrders());
+
+        store.add(order(2));
+        assertTrue(store.getVersion() > version);
+        List<Order> second = store.getOrders();
+        assertNotSame(first, second);
+        assertEquals(List.of(1), numbers(first));
+        assertEquals(List.of(1, 2), numbers(second));
+    }
+
+    @Test
+    void numbersAreUniqueAndRemovalIsByIdentity() {
+        StoreOrders store = new StoreOrders();
+        Order order = order(1);
+        assertTrue(store.add(order));
+        assertFalse(store.add(order(1)));
+        assertFalse(store.remove(order(1)));
+        assertSame(order, store.findStored(1));
+        assertTrue(store.remove(order));
+        assertNull(store.findStored(1));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void cancelRemovesTheOrderOnce() {
+        StoreOrders store = new StoreOrders();
+        Order order = order(1);
+        store.add(order);
+        assertSame(order, store.cancel(1));
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertNull(store.cancel(1));
+        assertNull(store.cancel(2));
+        assertEquals(List.of(), store.getOrders());
+    }
+
+    @Test
+    void addAllSkipsDuplicatesAndKeepsListOrder() {
+        StoreOrders store = new StoreOrders();
+        store.add(order(5));
+        Order repeated = order(7);
+        int added = store.addAll(List.of(order(9), order(5), repeated, order(3), order(7)));
+        assertEquals(3, added);
+        assertEquals(List.of(5, 9, 7, 3), numbers(store.getOrders()));
+        assertSame(repeated, store.findStored(7));
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    void batchesAreNotInterleavedWithConcurrentAdds() throws InterruptedException {
+        StoreOrders store = new StoreOrders();
+        int batches = 200;
+        int batchSize = 10;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread singles = new Thread(() -> {
+            awaitQuietly(start);
+            for (int number = 100_000; number < 102_000; number++) {
+                store.add(order(number));
+            }
+        });
+        Thread batcher = new Thread(() -> {
+            awaitQuietly(start);
+            for (int b = 0; b < batches; b++) {
+                List<Order> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.add(order(b * batchSize + i + 1));
+                }
+                store.addAll(batch);
+            }
+        });
+        singles.start();
+        batcher.start();
+        start.countDown();
+        singles.join();
+        batcher.join();
+
+        List<Integer> listed = numbers(store.getOrders());
+        assertEquals(2000 + batches * batchSize, listed.size());
+        for (int b = 0; b < batches; b++) {
+            int at = listed.indexOf(b * batchSize + 1);
+            for (int i = 0; i < batchSize; i++) {
+                assertEquals(b * batchSize + i + 1, listed.get(at + i));
+            }
+        }
+    }
+
+    @Test
+    void concurrentAddsAndCancelsLeaveAConsistentStore() throws InterruptedException {
+        StoreOrders store = new StoreOrders();
+        int threads = 8;
+        int perThread = 2000;
+        AtomicInteger next = new AtomicInteger(1);
+        AtomicInteger refused = new AtomicInteger();
+        Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perThread; i++) {
+                    int number = next.getAndIncrement();
+                    if (!store.add(order(number))) {
+                        refused.incrementAndGet();
+                    }
+                    if (number % 4 == 0 && store.cancel(number) != null) {
+                        cancelled.add(number);
+                    }
+                    if (i % 100 == 0) {
+                        // snapshots taken while other stripes change
+                        store.getOrders();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(0, refused.get());
+        List<Order> orders = store.getOrders();
+        Set<Integer> listed = new HashSet<>(numbers(orders));
+        assertEquals(orders.size(), listed.size());
+        assertEquals(threads * perThread - cancelled.size(), store.size());
+        assertEquals(store.size(), orders.size());
+        for (int number = 1; number <= threads * perThread; number++) {
+            assertEquals(!cancelled.contains(number), listed.contains(number));
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}